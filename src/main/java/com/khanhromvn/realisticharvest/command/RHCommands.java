@@ -5,9 +5,15 @@ import com.mojang.brigadier.arguments.IntegerArgumentType;
 import com.mojang.brigadier.builder.ArgumentBuilder;
 import com.mojang.brigadier.context.CommandContext;
 import com.khanhromvn.realisticharvest.RealisticHarvest;
+import com.khanhromvn.realisticharvest.crop.CropDenyCache;
+import com.khanhromvn.realisticharvest.metrics.LatencyHistogram;
+import com.khanhromvn.realisticharvest.metrics.SoilMetrics;
+import com.khanhromvn.realisticharvest.metrics.SoilProfiler;
 import com.khanhromvn.realisticharvest.soil.SoilCapability;
 import com.khanhromvn.realisticharvest.soil.SoilData;
 import com.khanhromvn.realisticharvest.soil.SoilAttribute;
+import com.khanhromvn.realisticharvest.soil.SoilTickScheduler;
+import com.khanhromvn.realisticharvest.config.RHConfig;
 import net.minecraft.command.CommandSource;
 import net.minecraft.command.Commands;
 import net.minecraft.util.math.BlockPos;
@@ -16,18 +22,28 @@ import net.minecraftforge.event.RegisterCommandsEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 /**
  * RHCommands:
  * Lệnh gốc /rh với subcommand:
  *
  * /rh soilinfo                 -> lấy thông tin soil tại block dưới chân người chơi
  * /rh soilinfo <x> <y> <z>     -> lấy soil tại tọa độ chỉ định
+ * /rh soilclean                -> xóa các ô đất còn trùng giá trị mặc định trong các chunk đang load của dimension (cần OP)
+ * /rh schedule                 -> phân bố công việc của soil scheduler theo tick (debug, cần OP)
+ * /rh stats                    -> metrics soil / crop: gauge store, bộ đếm, histogram thời gian (cần OP)
+ * /rh stats reset              -> xóa bộ đếm + histogram
+ * /rh profile start [giây]     -> bắt đầu đo thời gian theo pha / chunk / vị trí crop (tự dừng, mặc định 30s)
+ * /rh profile stop             -> dừng sớm
+ * /rh profile dump [n]         -> top n chunk / vị trí đắt nhất + ghi report TSV vào thư mục world
  *
  * FUTURE:
  *  - /rh set <attr> <value>
  *  - /rh stress reset
  *
- * Ghi chú: SoilData lưu ở chunk-level và tạo lazy khi truy cập.
+ * Ghi chú: SoilData lưu ở chunk-level, chỉ tạo khi đất bị thay đổi; soilinfo chỉ đọc (không tạo entry).
  */
 @Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
 public class RHCommands {
@@ -37,6 +53,10 @@ public class RHCommands {
         event.getDispatcher().register(
                 Commands.literal("rh")
                         .then(buildSoilInfo())
+                        .then(buildSoilClean())
+                        .then(buildSchedule())
+                        .then(buildStats())
+                        .then(buildProfile())
         );
     }
 
@@ -74,7 +94,7 @@ public class RHCommands {
     }
 
     private static void sendSoilInfo(CommandSource source, BlockPos pos) {
-        SoilData soil = SoilCapability.getOrCreate(source.getLevel(), pos);
+        SoilData soil = SoilCapability.getIfExists(source.getLevel(), pos);
         float moisture = soil.get(SoilAttribute.MOISTURE);
         float ph = soil.getPhReal();
         float fertility = soil.get(SoilAttribute.FERTILITY);
@@ -83,8 +103,154 @@ public class RHCommands {
         float stress = soil.getStressScore();
         float hoeBonus = soil.getHoeBonus();
 
-        source.sendSuccess(new StringTextComponent(String.format("[Soil @ %d %d %d]", pos.getX(), pos.getY(), pos.getZ())), false);
+        source.sendSuccess(new StringTextComponent(String.format("[Soil @ %d %d %d]%s", pos.getX(), pos.getY(), pos.getZ(),
+                soil == SoilData.DEFAULT ? " (chưa có dữ liệu, giá trị mặc định)" : "")), false);
         source.sendSuccess(new StringTextComponent(String.format("Moisture=%.3f pH=%.2f Fertility=%.3f Aeration=%.3f Organic=%.3f", moisture, ph, fertility, aer, org)), false);
         source.sendSuccess(new StringTextComponent(String.format("Stress=%.3f HoeBonus=%.3f", stress, hoeBonus)), false);
     }
+
+    private static ArgumentBuilder<CommandSource, ?> buildSoilClean() {
+        return Commands.literal("soilclean")
+                .requires(src -> src.hasPermission(2))
+                .executes(ctx -> executeSoilClean(ctx.getSource()));
+    }
+
+    private static int executeSoilClean(CommandSource source) {
+        int chunks = 0, removed = 0;
+        for (SoilCapability.ChunkSoilStore store : SoilTickScheduler.loadedStores(source.getLevel())) {
+            int n = store.removeDefaultCells();
+            if (n > 0) {
+                chunks++;
+                removed += n;
+            }
+        }
+        source.sendSuccess(new StringTextComponent(String.format("[Soil clean] removed %d default cells in %d chunks",
+                removed, chunks)), true);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static ArgumentBuilder<CommandSource, ?> buildSchedule() {
+        return Commands.literal("schedule")
+                .requires(src -> src.hasPermission(2))
+                .executes(ctx -> executeSchedule(ctx.getSource()));
+    }
+
+    private static int executeSchedule(CommandSource source) {
+        int interval = RHConfig.SERVER.soilUpdateInterval.get();
+        int[] load = SoilTickScheduler.phaseLoad();
+        int[] recent = SoilTickScheduler.recentProcessed(interval);
+        long[] nanos = SoilTickScheduler.recentNanos(interval);
+
+        int loadMin = Integer.MAX_VALUE, loadMax = 0, loadSum = 0;
+        for (int n : load) {
+            loadMin = Math.min(loadMin, n);
+            loadMax = Math.max(loadMax, n);
+            loadSum += n;
+        }
+        int doneMin = Integer.MAX_VALUE, doneMax = 0;
+        StringBuilder counts = new StringBuilder();
+        for (int n : recent) {
+            doneMin = Math.min(doneMin, n);
+            doneMax = Math.max(doneMax, n);
+            counts.append(n).append(' ');
+        }
+        long nanosSum = 0, nanosMax = 0;
+        for (long n : nanos) {
+            nanosSum += n;
+            nanosMax = Math.max(nanosMax, n);
+        }
+
+        source.sendSuccess(new StringTextComponent(String.format("[Soil scheduler] chunks=%d interval=%d backlog=%d",
+                SoilTickScheduler.queuedChunks(), interval, SoilTickScheduler.backlogSize())), false);
+        if (load.length > 0) {
+            source.sendSuccess(new StringTextComponent(String.format("Phase load (chunk/tick): min=%d avg=%.2f max=%d",
+                    loadMin, loadSum / (float) load.length, loadMax)), false);
+        }
+        if (recent.length > 0) {
+            source.sendSuccess(new StringTextComponent(String.format("Last %d ticks: processed min=%d max=%d, time avg=%.3fms max=%.3fms",
+                    recent.length, doneMin, doneMax, nanosSum / (recent.length * 1_000_000D), nanosMax / 1_000_000D)), false);
+            source.sendSuccess(new StringTextComponent(counts.toString().trim()), false);
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static ArgumentBuilder<CommandSource, ?> buildStats() {
+        return Commands.literal("stats")
+                .requires(src -> src.hasPermission(2))
+                .executes(ctx -> executeStats(ctx.getSource()))
+                .then(Commands.literal("reset")
+                        .executes(ctx -> {
+                            SoilMetrics.reset();
+                            ctx.getSource().sendSuccess(new StringTextComponent("[Soil stats] reset"), true);
+                            return Command.SINGLE_SUCCESS;
+                        }));
+    }
+
+    private static int executeStats(CommandSource source) {
+        long[] stores = SoilTickScheduler.storeCounts();
+        source.sendSuccess(new StringTextComponent(String.format("[Soil stats] metrics=%s chunks=%d withSoil=%d cells=%d denyCache=%d",
+                SoilMetrics.enabled() ? "on" : "off", stores[0], stores[1], stores[2], CropDenyCache.entryCount())), false);
+        StringBuilder counters = new StringBuilder();
+        for (SoilMetrics.Counter c : SoilMetrics.counters()) {
+            counters.append(c.name()).append('=').append(c.get()).append(' ');
+        }
+        source.sendSuccess(new StringTextComponent(counters.toString().trim()), false);
+        for (LatencyHistogram h : SoilMetrics.timers()) {
+            if (h.getCount() == 0L) continue;
+            source.sendSuccess(new StringTextComponent(String.format("%s: n=%d avg=%.1fus p50<=%.1fus p99<=%.1fus max=%.1fus",
+                    h.name(), h.getCount(), h.getMeanNanos() / 1_000D, h.getP50Nanos() / 1_000D,
+                    h.getP99Nanos() / 1_000D, h.getMaxNanos() / 1_000D)), false);
+        }
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static ArgumentBuilder<CommandSource, ?> buildProfile() {
+        return Commands.literal("profile")
+                .requires(src -> src.hasPermission(2))
+                .then(Commands.literal("start")
+                        .executes(ctx -> executeProfileStart(ctx.getSource(), SoilProfiler.DEFAULT_SECONDS))
+                        .then(Commands.argument("seconds", IntegerArgumentType.integer(1, 3600))
+                                .executes(ctx -> executeProfileStart(ctx.getSource(),
+                                        IntegerArgumentType.getInteger(ctx, "seconds")))))
+                .then(Commands.literal("stop")
+                        .executes(ctx -> executeProfileStop(ctx.getSource())))
+                .then(Commands.literal("dump")
+                        .executes(ctx -> executeProfileDump(ctx.getSource(), 5))
+                        .then(Commands.argument("n", IntegerArgumentType.integer(1, 100))
+                                .executes(ctx -> executeProfileDump(ctx.getSource(),
+                                        IntegerArgumentType.getInteger(ctx, "n")))));
+    }
+
+    private static int executeProfileStart(CommandSource source, int seconds) {
+        SoilProfiler.begin(seconds);
+        source.sendSuccess(new StringTextComponent(String.format("[Soil profile] started for %ds", seconds)), true);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int executeProfileStop(CommandSource source) {
+        if (!SoilProfiler.end()) {
+            source.sendFailure(new StringTextComponent("[Soil profile] not running"));
+            return 0;
+        }
+        source.sendSuccess(new StringTextComponent(String.format("[Soil profile] stopped after %.1fs",
+                SoilProfiler.windowNanos() / 1_000_000_000D)), true);
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int executeProfileDump(CommandSource source, int topN) {
+        if (!SoilProfiler.hasData()) {
+            source.sendFailure(new StringTextComponent("[Soil profile] no data, run /rh profile start first"));
+            return 0;
+        }
+        for (String line : SoilProfiler.summary(topN)) {
+            source.sendSuccess(new StringTextComponent(line), false);
+        }
+        try {
+            Path file = SoilProfiler.writeReport(source.getServer());
+            source.sendSuccess(new StringTextComponent("[Soil profile] report: " + file.getFileName()), false);
+        } catch (IOException e) {
+            source.sendFailure(new StringTextComponent("[Soil profile] cannot write report: " + e.getMessage()));
+        }
+        return Command.SINGLE_SUCCESS;
+    }
 }
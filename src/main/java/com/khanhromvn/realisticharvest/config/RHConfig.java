@@ -30,10 +30,27 @@ public final class RHConfig {
 
     public static class Server {
         public final ForgeConfigSpec.IntValue soilUpdateInterval;
+        public final ForgeConfigSpec.DoubleValue soilTickBudgetMs;
+        public final ForgeConfigSpec.BooleanValue parallelSoilTick;
+        public final ForgeConfigSpec.IntValue lodNearRadius;
+        public final ForgeConfigSpec.IntValue lodMidRadius;
+        public final ForgeConfigSpec.IntValue lodMidEvery;
+        public final ForgeConfigSpec.IntValue lodFarEvery;
         public final ForgeConfigSpec.DoubleValue evaporationBase;
         public final ForgeConfigSpec.DoubleValue rainfallMoistureGain;
         public final ForgeConfigSpec.DoubleValue fertilizerDecayMultiplier;
+        public final ForgeConfigSpec.BooleanValue compiledGrowthTables;
         public final ForgeConfigSpec.BooleanValue debugOverlayDefault;
+        public final ForgeConfigSpec.BooleanValue compactSoilStorage;
+        public final ForgeConfigSpec.IntValue denseSectionThreshold;
+        public final ForgeConfigSpec.BooleanValue offlineCatchUp;
+        public final ForgeConfigSpec.DoubleValue catchUpRainFraction;
+        public final ForgeConfigSpec.BooleanValue metricsEnabled;
+        public final ForgeConfigSpec.BooleanValue pruneIdleCells;
+        public final ForgeConfigSpec.DoubleValue idleCellTolerance;
+        public final ForgeConfigSpec.IntValue hoeFadeDays;
+        public final ForgeConfigSpec.IntValue maxCellsPerChunk;
+        public final ForgeConfigSpec.BooleanValue channelsRequireEmitter;
 
         Server(ForgeConfigSpec.Builder builder) {
             builder.comment("Realistic Harvest - Server Config").push("server");
@@ -42,6 +59,30 @@ public final class RHConfig {
                     .comment("Số tick giữa mỗi lần cập nhật soil scheduler (giảm tải).")
                     .defineInRange("soilUpdateInterval", 40, 5, 400);
 
+            soilTickBudgetMs = builder
+                    .comment("Ngân sách thời gian (ms) mỗi server tick cho soil scheduler; phần chưa xong dời sang tick sau.")
+                    .defineInRange("soilTickBudgetMs", 2.0D, 0.1D, 50.0D);
+
+            parallelSoilTick = builder
+                    .comment("Chạy phần tính toán soil tick song song trên nhiều thread (kết quả giống hệt chế độ tuần tự).")
+                    .define("parallelSoilTick", false);
+
+            lodNearRadius = builder
+                    .comment("Bán kính (chunk) quanh người chơi gần nhất mà soil cập nhật mỗi interval.")
+                    .defineInRange("lodNearRadius", 4, 0, 64);
+
+            lodMidRadius = builder
+                    .comment("Bán kính (chunk) vùng giữa; xa hơn là vùng xa (spawn chunk, chunk loader, không có người chơi).")
+                    .defineInRange("lodMidRadius", 10, 0, 128);
+
+            lodMidEvery = builder
+                    .comment("Vùng giữa cập nhật mỗi N interval (delta thời gian được nhân tương ứng). 1 = như vùng gần.")
+                    .defineInRange("lodMidEvery", 4, 1, 64);
+
+            lodFarEvery = builder
+                    .comment("Vùng xa cập nhật mỗi N interval (delta thời gian được nhân tương ứng). 1 = như vùng gần.")
+                    .defineInRange("lodFarEvery", 16, 1, 256);
+
             evaporationBase = builder
                     .comment("Hệ số bay hơi nền (điều chỉnh tốc độ mất ẩm).")
                     .defineInRange("evaporationBase", 0.0008D, 0.0001D, 0.01D);
@@ -54,10 +95,54 @@ public final class RHConfig {
                     .comment("Multiplier global cho tốc độ suy giảm phân bón.")
                     .defineInRange("fertilizerDecayMultiplier", 1.0D, 0.1D, 10.0D);
 
+            compiledGrowthTables = builder
+                    .comment("Tính growth của crop bằng bảng tra nội suy dựng theo profile (sai số <= 1e-3) thay vì công thức đầy đủ.")
+                    .define("compiledGrowthTables", false);
+
             debugOverlayDefault = builder
                     .comment("Bật debug overlay soil mặc định khi join (chỉ dành cho dev).")
                     .define("debugOverlayDefault", false);
 
+            compactSoilStorage = builder
+                    .comment("Lưu attribute đất dạng fixed-point 16-bit thay vì float (giảm RAM, sai số <= 1/131070).")
+                    .define("compactSoilStorage", false);
+
+            denseSectionThreshold = builder
+                    .comment("Số ô đất trong một chunk section (16x16x16) trước khi chuyển từ map sparse sang grid dense.")
+                    .defineInRange("denseSectionThreshold", 1024, 1, 4096);
+
+            offlineCatchUp = builder
+                    .comment("Khi chunk load lại: mô phỏng bù (closed-form) cho thời gian chunk không được load.")
+                    .define("offlineCatchUp", true);
+
+            catchUpRainFraction = builder
+                    .comment("Tỉ lệ thời gian có mưa giả định khi mô phỏng bù (vanilla trung bình ~0.16).")
+                    .defineInRange("catchUpRainFraction", 0.16D, 0.0D, 1.0D);
+
+            metricsEnabled = builder
+                    .comment("Thu thập metrics soil / crop (bộ đếm, histogram thời gian) cho /rh stats và JMX. Tắt => hook thành no-op.")
+                    .define("metricsEnabled", true);
+
+            pruneIdleCells = builder
+                    .comment("Định kỳ (mỗi 10 lượt scheduler): xóa ô đất không có phân bón / stress / lịch sử cuốc và đã trở về gần mặc định.")
+                    .define("pruneIdleCells", true);
+
+            idleCellTolerance = builder
+                    .comment("Sai lệch tối đa (thang 0..1) của mỗi attribute so với mặc định để ô được coi là đã trở về mặc định.")
+                    .defineInRange("idleCellTolerance", 0.01D, 0.0D, 0.2D);
+
+            hoeFadeDays = builder
+                    .comment("Mỗi N ngày game, lịch sử cuốc (hoeCount) của ô không được dùng tới (không crop / truy cập) trong N ngày đó giảm 1 => ô bỏ hoang được dọn. 0 = không phai, bonus cuốc vĩnh viễn (mặc định).")
+                    .defineInRange("hoeFadeDays", 0, 0, 365);
+
+            maxCellsPerChunk = builder
+                    .comment("Số ô đất tối đa mỗi chunk; đầy => xóa theo lô ~10% ô lâu nhất không được dùng (LRU). 0 = không giới hạn.")
+                    .defineInRange("maxCellsPerChunk", 0, 0, 65536);
+
+            channelsRequireEmitter = builder
+                    .comment("Kênh tưới chỉ tưới khi mạng kênh nối với water emitter. false = mọi kênh đều tưới (như bản cũ).")
+                    .define("channelsRequireEmitter", false);
+
             builder.pop();
         }
     }
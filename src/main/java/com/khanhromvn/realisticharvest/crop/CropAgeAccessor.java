@@ -0,0 +1,100 @@
+package com.khanhromvn.realisticharvest.crop;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.CropsBlock;
+import net.minecraft.state.IntegerProperty;
+import net.minecraftforge.fml.common.ObfuscationReflectionHelper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * CropAgeAccessor: đọc age của crop mà không dùng reflection mỗi lần gọi.
+ *
+ * Resolve một lần cho mỗi loại block (cache theo identity của Block):
+ * - Mặc định: IntegerProperty lấy qua getAgeProperty() (gọi ảo => tôn trọng override của block mod,
+ *   vd. BeetrootBlock dùng AGE 0..3) rồi đọc trực tiếp từ BlockState.
+ * - Nếu lớp block override chính getAge (protected) thì công thức age có thể khác property
+ *   => dùng MethodHandle của CropsBlock.getAge (dispatch ảo), tạo một lần.
+ * Tên getAge lúc chạy là tên SRG (func_185527_x), tìm qua ObfuscationReflectionHelper.
+ *
+ * Chỉ dùng trên server thread (cache không đồng bộ).
+ */
+final class CropAgeAccessor {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Map<CropsBlock, CropAgeAccessor> CACHE = new IdentityHashMap<>();
+
+    // CropsBlock.getAge(BlockState); null nếu không tìm được (khi đó chỉ dùng property)
+    private static final Method GET_AGE = findGetAge();
+
+    private final IntegerProperty property;
+    private final MethodHandle getAge;
+
+    private CropAgeAccessor(IntegerProperty property, MethodHandle getAge) {
+        this.property = property;
+        this.getAge = getAge;
+    }
+
+    static CropAgeAccessor of(CropsBlock block) {
+        CropAgeAccessor accessor = CACHE.get(block);
+        if (accessor == null) {
+            accessor = resolve(block);
+            CACHE.put(block, accessor);
+        }
+        return accessor;
+    }
+
+    int getAge(CropsBlock block, BlockState state) {
+        if (getAge != null) {
+            try {
+                return (int) getAge.invokeExact(block, state);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Failed to read crop age of " + block.getRegistryName(), t);
+            }
+        }
+        return state.getValue(property);
+    }
+
+    private static CropAgeAccessor resolve(CropsBlock block) {
+        MethodHandle handle = null;
+        if (GET_AGE != null && overridesGetAge(block.getClass())) {
+            try {
+                handle = MethodHandles.lookup().unreflect(GET_AGE)
+                        .asType(MethodType.methodType(int.class, CropsBlock.class, BlockState.class));
+            } catch (IllegalAccessException e) {
+                LOGGER.warn("[CropAgeAccessor] Cannot access getAge for {}, using age property", block.getRegistryName(), e);
+            }
+        }
+        return new CropAgeAccessor(block.getAgeProperty(), handle);
+    }
+
+    private static boolean overridesGetAge(Class<?> type) {
+        for (Class<?> c = type; c != CropsBlock.class && c != null; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(GET_AGE.getName(), BlockState.class);
+                return true;
+            } catch (NoSuchMethodException ignored) {
+                // lớp này không override
+            }
+        }
+        return false;
+    }
+
+    private static Method findGetAge() {
+        try {
+            Method m = ObfuscationReflectionHelper.findMethod(CropsBlock.class, "func_185527_x", BlockState.class);
+            m.setAccessible(true);
+            return m;
+        } catch (RuntimeException e) {
+            LOGGER.warn("[CropAgeAccessor] CropsBlock.getAge not found, crop age is read from the age property only", e);
+            return null;
+        }
+    }
+}
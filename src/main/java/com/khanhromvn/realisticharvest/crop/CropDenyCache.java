@@ -0,0 +1,314 @@
+package com.khanhromvn.realisticharvest.crop;
+
+import com.khanhromvn.realisticharvest.RealisticHarvest;
+import com.khanhromvn.realisticharvest.metrics.SoilMetrics;
+import com.khanhromvn.realisticharvest.soil.SoilCapability;
+import com.khanhromvn.realisticharvest.soil.SoilData;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * CropDenyCache: cache âm cho crop bị từ chối tăng trưởng (growthMultiplier <= 0.25), theo từng world.
+ *
+ * Khi CropGrowthHandler từ chối vì đất quá kém, ghi lại (vị trí crop -> profile, store đất,
+ * version section đất, deny-until). Random tick sau đó của cùng vị trí được trả lời DENY ngay
+ * (không peek đất, không tính profile) khi:
+ *  - profile của block không đổi (reload profile tạo object mới => miss),
+ *  - version section đất không đổi (mọi thay đổi giá trị ô, kể cả do scheduler / áp dụng delta, đều tăng version),
+ *  - chưa quá deny-until (chặn trên độ cũ).
+ * Store được giữ theo tham chiếu nên khi chunk unload mọi entry của chunk bị xóa (stress được cộng trước,
+ * chunk được lưu ngay sau event) => không entry nào so version với store cũ sau khi chunk load lại.
+ * Quyết định DENY là tất định (không random) và stress tăng chỉ làm multiplier giảm thêm, nên cache
+ * không đổi kết quả. Mỗi lần bỏ qua được đếm; khi entry hết hiệu lực (lần tra kế tiếp hoặc lượt quét định kỳ)
+ * stress 0.02 / lần được cộng gộp một lần vào delta buffer của chunk (registerStress clamp tại 1,
+ * cộng dồn rồi clamp cho cùng kết quả).
+ *
+ * Bảng open-addressing (linear probing, key = BlockPos.asLong() của crop) với mảng song song:
+ * tra / ghi không cấp phát. Chỉ truy cập trên server thread.
+ */
+@Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
+public final class CropDenyCache {
+
+    /** Số tick tối đa một lần từ chối được dùng lại. */
+    public static final long DENY_TTL = 6000L;
+    /** Chu kỳ quét entry hết hạn (tick). */
+    private static final int SWEEP_INTERVAL = 200;
+    private static final float STRESS_PER_DENY = 0.02f;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private static final Map<World, CropDenyCache> CACHES = new IdentityHashMap<>();
+
+    private long[] keys;
+    private CropProfile[] profiles;
+    private SoilCapability.ChunkSoilStore[] stores;
+    private int[] versions;
+    private long[] until;
+    private int[] skipped;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private CropDenyCache() {
+        allocate(MIN_CAPACITY);
+    }
+
+    static CropDenyCache of(World world) {
+        CropDenyCache cache = CACHES.get(world);
+        if (cache == null) {
+            cache = new CropDenyCache();
+            CACHES.put(world, cache);
+        }
+        return cache;
+    }
+
+    /** Tổng số entry của mọi world (thống kê). */
+    public static int entryCount() {
+        int n = 0;
+        for (CropDenyCache cache : CACHES.values()) {
+            n += cache.size;
+        }
+        return n;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        profiles = new CropProfile[capacity];
+        stores = new SoilCapability.ChunkSoilStore[capacity];
+        versions = new int[capacity];
+        until = new long[capacity];
+        skipped = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * 0.75f);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int find(long key) {
+        int i = mix(key) & mask;
+        while (true) {
+            long k = keys[i];
+            if (k == key) return i;
+            if (k == EMPTY) return -1;
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * @return true nếu crop tại key vẫn chắc chắn bị từ chối (lần bỏ qua được đếm để cộng stress sau)
+     */
+    boolean test(long key, CropProfile profile, long gameTime) {
+        if (size == 0) return false;
+        int slot = find(key);
+        if (slot < 0) return false;
+        if (valid(slot, profile, gameTime)) {
+            skipped[slot]++;
+            return true;
+        }
+        credit(slot);
+        remove(slot);
+        return false;
+    }
+
+    private boolean valid(int slot, CropProfile profile, long gameTime) {
+        return profiles[slot] == profile && current(keys[slot], stores[slot], versions[slot], until[slot], gameTime);
+    }
+
+    private static boolean current(long key, SoilCapability.ChunkSoilStore store, int version, long until, long gameTime) {
+        return gameTime < until && store.sectionVersion(BlockPos.getY(key) - 1) == version;
+    }
+
+    /**
+     * Ghi nhận một lần từ chối đã tính đầy đủ; soil là cursor vừa dùng để đánh giá (đất dưới crop).
+     * Đất detached (chưa có dữ liệu) không được cache.
+     */
+    void record(long key, CropProfile profile, SoilData soil, long gameTime) {
+        SoilCapability.ChunkSoilStore store = soil.owner();
+        if (store == null) return;
+        int slot = find(key);
+        if (slot >= 0) {
+            credit(slot);
+        } else {
+            if (size + 1 > resizeAt) {
+                rebuild(keys.length << 1, Long.MIN_VALUE);
+            }
+            slot = mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            size++;
+        }
+        profiles[slot] = profile;
+        stores[slot] = store;
+        versions[slot] = store.sectionVersion(BlockPos.getY(key) - 1);
+        until[slot] = gameTime + DENY_TTL;
+        skipped[slot] = 0;
+    }
+
+    /** Cộng gộp stress của các lần từ chối đã bỏ qua vào ô đất. */
+    private void credit(int slot) {
+        int n = skipped[slot];
+        if (n == 0) return;
+        skipped[slot] = 0;
+        long key = keys[slot];
+        stores[slot].queueStress(BlockPos.getX(key), BlockPos.getY(key) - 1, BlockPos.getZ(key), STRESS_PER_DENY * n);
+    }
+
+    /** Backward-shift deletion (như SparseSoilMap.remove). */
+    private void remove(int i) {
+        keys[i] = EMPTY;
+        profiles[i] = null;
+        stores[i] = null;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = keys[j];
+            if (k == EMPTY) break;
+            int home = mix(k) & mask;
+            boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {
+                keys[i] = k;
+                profiles[i] = profiles[j];
+                stores[i] = stores[j];
+                versions[i] = versions[j];
+                until[i] = until[j];
+                skipped[i] = skipped[j];
+                keys[j] = EMPTY;
+                profiles[j] = null;
+                stores[j] = null;
+                i = j;
+            }
+        }
+        size--;
+    }
+
+    /**
+     * Dựng lại bảng với capacity mới; entry hết hạn tại gameTime (hoặc đất đã đổi) được cộng stress và bỏ.
+     * gameTime = Long.MIN_VALUE: giữ mọi entry (chỉ resize).
+     */
+    private void rebuild(int capacity, long gameTime) {
+        long[] oldKeys = keys;
+        CropProfile[] oldProfiles = profiles;
+        SoilCapability.ChunkSoilStore[] oldStores = stores;
+        int[] oldVersions = versions;
+        long[] oldUntil = until;
+        int[] oldSkipped = skipped;
+        int oldSize = size;
+        allocate(capacity);
+        size = 0;
+        for (int s = 0; s < oldKeys.length && size < oldSize; s++) {
+            long key = oldKeys[s];
+            if (key == EMPTY) continue;
+            SoilCapability.ChunkSoilStore store = oldStores[s];
+            if (gameTime != Long.MIN_VALUE && !current(key, store, oldVersions[s], oldUntil[s], gameTime)) {
+                if (oldSkipped[s] > 0) {
+                    store.queueStress(BlockPos.getX(key), BlockPos.getY(key) - 1, BlockPos.getZ(key),
+                            STRESS_PER_DENY * oldSkipped[s]);
+                }
+                oldSize--;
+                continue;
+            }
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            profiles[slot] = oldProfiles[s];
+            stores[slot] = store;
+            versions[slot] = oldVersions[s];
+            until[slot] = oldUntil[s];
+            skipped[slot] = oldSkipped[s];
+            size++;
+        }
+    }
+
+    /**
+     * Chunk (cx, cz) sắp unload: cộng stress của mọi entry thuộc chunk vào delta, ghi delta vào ô
+     * (đánh dấu chunk cần lưu) rồi xóa entry.
+     */
+    private void purgeChunk(int cx, int cz) {
+        SoilCapability.ChunkSoilStore credited = null;
+        int s = 0;
+        while (s < keys.length && size > 0) {
+            long key = keys[s];
+            if (key == EMPTY || BlockPos.getX(key) >> 4 != cx || BlockPos.getZ(key) >> 4 != cz) {
+                s++;
+                continue;
+            }
+            if (skipped[s] > 0) {
+                credit(s);
+                credited = stores[s];
+            }
+            // remove dời entry phía sau vào slot s => xét lại slot s
+            remove(s);
+        }
+        if (credited != null) {
+            credited.applyDeltas();
+        }
+    }
+
+    /** Quét định kỳ: entry không còn đúng được cộng stress và xóa, bảng thu nhỏ khi thưa. */
+    private void sweep(long gameTime) {
+        int stale = 0;
+        for (int s = 0; s < keys.length; s++) {
+            if (keys[s] != EMPTY && !current(keys[s], stores[s], versions[s], until[s], gameTime)) stale++;
+        }
+        if (stale == 0) return;
+        int capacity = MIN_CAPACITY;
+        while (capacity * 0.75f < size - stale + 1) {
+            capacity <<= 1;
+        }
+        rebuild(capacity, gameTime);
+    }
+
+    @SubscribeEvent
+    public static void onWorldTick(TickEvent.WorldTickEvent event) {
+        if (event.phase != TickEvent.Phase.END || event.world.isClientSide) return;
+        long gameTime = event.world.getGameTime();
+        if (gameTime % SWEEP_INTERVAL != 0) return;
+        CropDenyCache cache = CACHES.get(event.world);
+        if (cache != null) {
+            cache.sweep(gameTime);
+        }
+        if (SoilMetrics.enabled()) {
+            SoilMetrics.sampleDenyCache(entryCount());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (!(event.getWorld() instanceof ServerWorld)) return;
+        CropDenyCache cache = CACHES.get((World) event.getWorld());
+        if (cache != null && cache.size > 0) {
+            ChunkPos pos = event.getChunk().getPos();
+            cache.purgeChunk(pos.x, pos.z);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onWorldUnload(WorldEvent.Unload event) {
+        CACHES.remove(event.getWorld());
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(FMLServerStoppedEvent event) {
+        CACHES.clear();
+    }
+}
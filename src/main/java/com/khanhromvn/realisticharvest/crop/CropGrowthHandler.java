@@ -1,20 +1,20 @@
 package com.khanhromvn.realisticharvest.crop;
 
 import com.khanhromvn.realisticharvest.RealisticHarvest;
+import com.khanhromvn.realisticharvest.config.RHConfig;
+import com.khanhromvn.realisticharvest.metrics.SoilMetrics;
+import com.khanhromvn.realisticharvest.metrics.SoilProfiler;
 import com.khanhromvn.realisticharvest.soil.SoilCapability;
 import com.khanhromvn.realisticharvest.soil.SoilData;
 import com.khanhromvn.realisticharvest.soil.SoilAttribute;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.CropsBlock;
-import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.event.world.BlockEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
 /**
  * CropGrowthHandler:
@@ -26,65 +26,82 @@ import org.apache.logging.log4j.Logger;
  * Nếu multiplier giữa (0.25..1) => cho tăng trưởng nhưng có xác suất scale
  * (random).
  * Nếu >1 => cho tăng trưởng và có cơ hội tăng thêm 1 stage (bonus nhỏ).
- * - Post: (tạm thời) không làm gì, mở rộng sau cho phân bố fertilizer
- * consume...
+ * - Post: tiêu hao fertility / organic sau tăng trưởng + phục hồi stress nhẹ.
+ * Mọi ghi (stress, tiêu hao) đi qua SoilData.queue*: cộng dồn vào delta buffer của chunk,
+ * áp dụng cả lô ở lượt soil scheduler; đọc trong Pre vẫn thấy committed + delta đang chờ.
  *
- * Stress tính qua computeGrowth của CropProfile; profile được load từ JSON.
+ * Số sự kiện / số lần từ chối / thời gian mỗi handler được ghi vào SoilMetrics (/rh stats);
+ * khi /rh profile đang chạy, thời gian handler theo vị trí crop được ghi vào SoilProfiler.
+ *
+ * Stress tính qua computeGrowth của CropProfile (hoặc bảng tra CropGrowthTable khi bật
+ * compiledGrowthTables); profile được load từ JSON.
  * Nếu không có profile => mặc định vanilla.
  *
  * TODO:
  * - Intensive farming bonus ứng với thao tác người chơi (hoe cải tạo -> tăng
  * aeration)
- * - Fertility consumption mỗi growth
  */
 @Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
 public class CropGrowthHandler {
 
-    private static final Logger LOGGER = LogManager.getLogger();
-
     @SubscribeEvent
     public static void onCropGrow(BlockEvent.CropGrowEvent.Pre event) {
-        ServerWorld world = (ServerWorld) event.getWorld();
-        BlockPos pos = event.getPos();
+        long t = SoilMetrics.start();
+        long p = SoilProfiler.start();
+        handleCropGrow(event);
+        SoilMetrics.CROP_GROW.stop(t);
+        SoilProfiler.stopCrop(event.getWorld(), event.getPos(), p);
+    }
+
+    private static void handleCropGrow(BlockEvent.CropGrowEvent.Pre event) {
         BlockState state = event.getState();
         Block block = state.getBlock();
 
-        if (!(block instanceof CropsBlock)) {
+        // Đường nhanh: block không có profile => vanilla (tra identity, không cấp phát)
+        CropProfile profile = CropProfileLoader.getProfile(block);
+        if (profile == null || !(block instanceof CropsBlock) || !(event.getWorld() instanceof ServerWorld)) {
+            return;
+        }
+        ServerWorld world = (ServerWorld) event.getWorld();
+        BlockPos pos = event.getPos();
+        SoilMetrics.CROP_EVENTS.inc();
+
+        // Cache âm: đất chưa đổi kể từ lần từ chối trước => từ chối ngay (stress cộng gộp sau)
+        CropDenyCache denied = CropDenyCache.of(world);
+        long cropKey = pos.asLong();
+        long gameTime = world.getGameTime();
+        if (denied.test(cropKey, profile, gameTime)) {
+            SoilMetrics.CROP_DENY_CACHE_HITS.inc();
+            SoilMetrics.CROP_DENIED.inc();
+            event.setResult(BlockEvent.Result.DENY);
             return;
         }
 
-        // Fetch soil data
-        SoilData soil = SoilCapability.getIfExists(world, pos.below());
+        // Fetch soil data (cursor dùng chung, chỉ dùng trong handler này)
+        SoilData soil = SoilCapability.peek(world, pos.getX(), pos.getY() - 1, pos.getZ());
 
         // Basic soil values
         float moisture = soil.get(SoilAttribute.MOISTURE);
-        float phReal = soil.getPhReal();
+        float ph = soil.get(SoilAttribute.PH); // normalized
         float fertility = soil.get(SoilAttribute.FERTILITY);
         float aeration = soil.get(SoilAttribute.AERATION);
         float organic = soil.get(SoilAttribute.ORGANIC_MATTER);
 
-        // Resolve crop id; mapping: try registry name
-        ResourceLocation cropId = block.getRegistryName();
-        if (cropId == null) {
-            return;
-        }
-
-        CropProfile profile = CropProfileLoader.getProfile(cropId);
-        if (profile == null) {
-            // Không có profile => vanilla
-            return;
-        }
-
         // Intensive bonus & stress penalty integration
         float hoeBonus = soil.getHoeBonus(); // 0..0.10 thêm trực tiếp
         float stressPenaltyFactor = 1f - soil.getStressScore() * 0.30f; // stress giảm tối đa 30%
-        float baseGrowth = profile.computeGrowth(moisture, phReal, fertility, aeration, organic);
+        CropGrowthTable table = RHConfig.SERVER.compiledGrowthTables.get() ? profile.growthTable() : null;
+        float baseGrowth = table != null
+                ? table.growth(moisture, ph, fertility, aeration, organic)
+                : profile.computeGrowth(moisture, SoilAttribute.denormalizePh(ph), fertility, aeration, organic);
         float growthMultiplier = baseGrowth * (1f + hoeBonus) * stressPenaltyFactor;
 
         // Decide action with stress tracking
         if (growthMultiplier <= 0.25f) {
-            soil.registerStress(0.02f); // tăng stress vì điều kiện quá kém
+            soil.queueStress(0.02f); // tăng stress vì điều kiện quá kém
+            SoilMetrics.CROP_DENIED.inc();
             event.setResult(BlockEvent.Result.DENY);
+            denied.record(cropKey, profile, soil, gameTime);
             return;
         }
 
@@ -92,11 +109,12 @@ public class CropGrowthHandler {
         if (growthMultiplier < 1f) {
             float chance = growthMultiplier; // trực tiếp dùng multiplier làm xác suất
             if (world.getRandom().nextFloat() > chance) {
-                soil.registerStress(0.01f); // tăng nhẹ stress do tăng trưởng bị từ chối ngẫu nhiên
+                soil.queueStress(0.01f); // tăng nhẹ stress do tăng trưởng bị từ chối ngẫu nhiên
+                SoilMetrics.CROP_DENIED.inc();
                 event.setResult(BlockEvent.Result.DENY);
             } else {
                 // phục hồi nhẹ nếu thành công trong vùng suboptimal
-                soil.passiveStressRecovery();
+                soil.queueStressRecovery();
             }
             return;
         }
@@ -106,28 +124,18 @@ public class CropGrowthHandler {
         if (growthMultiplier >= 1.2f) {
             float bonusChance = Math.min((growthMultiplier - 1.0f) * 0.25f, 0.35f);
             if (world.getRandom().nextFloat() < bonusChance) {
-                if (block instanceof CropsBlock) {
-                    CropsBlock crops = (CropsBlock) block;
-                    // Use reflection to access protected getAge method
-                    try {
-                        java.lang.reflect.Method getAgeMethod = CropsBlock.class.getDeclaredMethod("getAge",
-                                BlockState.class);
-                        getAgeMethod.setAccessible(true);
-                        int age = (int) getAgeMethod.invoke(crops, state);
-                        int maxAge = crops.getMaxAge();
-                        if (age < maxAge) {
-                            int newAge = Math.min(maxAge, age + 1);
-                            world.setBlock(pos, crops.getStateForAge(newAge), 2);
-                        }
-                    } catch (Exception e) {
-                        LOGGER.warn("Failed to access crop age via reflection for bonus growth", e);
-                    }
+                CropsBlock crops = (CropsBlock) block;
+                int age = CropAgeAccessor.of(crops).getAge(crops, state);
+                int maxAge = crops.getMaxAge();
+                if (age < maxAge) {
+                    int newAge = Math.min(maxAge, age + 1);
+                    world.setBlock(pos, crops.getStateForAge(newAge), 2);
                 }
             }
-            soil.passiveStressRecovery(); // điều kiện tốt -> giảm stress
+            soil.queueStressRecovery(); // điều kiện tốt -> giảm stress
         } else {
             // optimal nhưng không đủ cao cho bonus vẫn hồi nhẹ
-            soil.passiveStressRecovery();
+            soil.queueStressRecovery();
         }
     }
 
@@ -135,15 +143,20 @@ public class CropGrowthHandler {
     public static void onCropGrowPost(BlockEvent.CropGrowEvent.Post event) {
         if (!(event.getWorld() instanceof ServerWorld))
             return;
+        long t = SoilMetrics.start();
+        long p = SoilProfiler.start();
+        SoilMetrics.CROP_POST_EVENTS.inc();
         ServerWorld world = (ServerWorld) event.getWorld();
         BlockPos pos = event.getPos();
-        SoilData soil = SoilCapability.getIfExists(world, pos.below());
+        SoilData soil = SoilCapability.peek(world, pos.getX(), pos.getY() - 1, pos.getZ());
         if (soil != null) {
             // Tiêu hao tài nguyên sau tăng trưởng thành công
-            soil.consumeAfterGrowth();
+            soil.queueConsumeAfterGrowth();
             // Passive recovery thêm (nhẹ) để stress có thể giảm dần theo thời gian khi tăng
             // trưởng diễn ra
-            soil.passiveStressRecovery();
+            soil.queueStressRecovery();
         }
+        SoilMetrics.CROP_GROW_POST.stop(t);
+        SoilProfiler.stopCrop(world, pos, p);
     }
 }
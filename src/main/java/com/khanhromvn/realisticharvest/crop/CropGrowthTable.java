@@ -0,0 +1,120 @@
+package com.khanhromvn.realisticharvest.crop;
+
+import com.khanhromvn.realisticharvest.soil.SoilAttribute;
+
+/**
+ * CropGrowthTable: dạng compile của CropProfile.computeGrowth, dựng lười khi lần đầu cần
+ * (RHConfig.SERVER.compiledGrowthTables).
+ *
+ * factor(moisture) * factor(pH) * factor(fertility) tách được theo từng trục => mỗi trục một bảng
+ * 1D (steps + 1 mẫu trên miền normalized 0..1, pH đổi sang giá trị thực khi dựng bảng), nội suy tuyến tính
+ * giữa hai mẫu. baseGrowthMultiplier gộp vào bảng intensive (4 tổ hợp bonus => 4 phần tử).
+ * Đánh giá = 6 lần đọc mảng + vài phép nhân / cộng, không gọi hàm / không nhánh theo range.
+ *
+ * Sai số: factor tuyến tính từng khúc, độ dốc trên trục normalized = penalty / (max - min) (pH nhân 7).
+ * Nội suy tuyến tính chỉ sai ở ô chứa điểm gãy, tối đa slope / (4 * steps). Số mẫu mỗi trục chọn theo
+ * độ dốc (lũy thừa 2, MIN_STEPS..MAX_STEPS) sao cho sai số của growth <= ERROR_BOUND; range quá hẹp
+ * cần nhiều hơn MAX_STEPS => compile trả null, dùng công thức đầy đủ.
+ */
+public final class CropGrowthTable {
+
+    /** Sai số tuyệt đối tối đa của growth so với CropProfile.computeGrowth. */
+    public static final float ERROR_BOUND = 1e-3f;
+    static final int MIN_STEPS = 256;
+    static final int MAX_STEPS = 65536;
+
+    private final float[] moisture;
+    private final float[] ph;
+    private final float[] fertility;
+    private final float moistureScale;
+    private final float phScale;
+    private final float fertilityScale;
+    private final float[] intensive = new float[4];
+    private final float aerationThreshold;
+    private final float organicThreshold;
+
+    private CropGrowthTable(CropProfile profile, int moistureSteps, int phSteps, int fertilitySteps) {
+        moisture = new float[moistureSteps + 2];
+        ph = new float[phSteps + 2];
+        fertility = new float[fertilitySteps + 2];
+        for (int i = 0; i <= moistureSteps; i++) {
+            moisture[i] = CropProfile.factor(profile.moistureRange, i / (float) moistureSteps, profile.moisturePenalty);
+        }
+        for (int i = 0; i <= phSteps; i++) {
+            ph[i] = CropProfile.factor(profile.phRange, SoilAttribute.denormalizePh(i / (float) phSteps),
+                    profile.phPenalty);
+        }
+        for (int i = 0; i <= fertilitySteps; i++) {
+            fertility[i] = CropProfile.factor(profile.fertilityRange, i / (float) fertilitySteps,
+                    profile.fertilityPenalty);
+        }
+        // Mẫu đệm sau điểm cuối: v = 1 nội suy với trọng số 0 mà không cần nhánh
+        moisture[moistureSteps + 1] = moisture[moistureSteps];
+        ph[phSteps + 1] = ph[phSteps];
+        fertility[fertilitySteps + 1] = fertility[fertilitySteps];
+        moistureScale = moistureSteps;
+        phScale = phSteps;
+        fertilityScale = fertilitySteps;
+        float base = profile.baseGrowthMultiplier;
+        intensive[0] = base;
+        intensive[1] = base * (1f + profile.aerationBonus);
+        intensive[2] = base * (1f + profile.organicBonus);
+        intensive[3] = base * (1f + (profile.aerationBonus + profile.organicBonus));
+        this.aerationThreshold = profile.aerationThreshold;
+        this.organicThreshold = profile.organicThreshold;
+    }
+
+    /**
+     * Dựng bảng cho profile, hoặc null nếu có trục cần hơn MAX_STEPS mẫu để đạt ERROR_BOUND.
+     */
+    static CropGrowthTable compile(CropProfile profile) {
+        float maxScale = Math.abs(profile.baseGrowthMultiplier)
+                * Math.max(1f, 1f + Math.max(0f, profile.aerationBonus) + Math.max(0f, profile.organicBonus));
+        // |d(abc)| <= |da| + |db| + |dc| khi |a|, |b|, |c| <= 1 => chia đều sai số cho 3 trục
+        float axisError = ERROR_BOUND / (3f * Math.max(maxScale, 1e-6f));
+        int moistureSteps = steps(profile.moistureRange, profile.moisturePenalty, 1f, axisError);
+        int phSteps = steps(profile.phRange, profile.phPenalty, 10f - 3f, axisError);
+        int fertilitySteps = steps(profile.fertilityRange, profile.fertilityPenalty, 1f, axisError);
+        if (moistureSteps < 0 || phSteps < 0 || fertilitySteps < 0) return null;
+        return new CropGrowthTable(profile, moistureSteps, phSteps, fertilitySteps);
+    }
+
+    /**
+     * @param span độ dài miền giá trị thực ứng với 0..1 normalized
+     * @return số khoảng (lũy thừa 2) đủ cho sai số <= axisError, -1 nếu cần hơn MAX_STEPS
+     */
+    private static int steps(CropProfile.Range range, float penalty, float span, float axisError) {
+        double slope = Math.abs(penalty) * span / (range.max - range.min + 0.0001f);
+        double needed = Math.ceil(slope / (4.0 * axisError));
+        if (needed > MAX_STEPS) return -1;
+        int steps = MIN_STEPS;
+        while (steps < needed) {
+            steps <<= 1;
+        }
+        return steps;
+    }
+
+    /** Số khoảng của trục moisture / pH / fertility. */
+    int[] steps() {
+        return new int[]{(int) moistureScale, (int) phScale, (int) fertilityScale};
+    }
+
+    private static float sample(float[] table, float scale, float v) {
+        float x = v * scale;
+        x = x < 0f ? 0f : (x > scale ? scale : x);
+        int i = (int) x;
+        float a = table[i];
+        return a + (table[i + 1] - a) * (x - i);
+    }
+
+    /**
+     * Tương đương CropProfile.computeGrowth nhưng mọi giá trị (kể cả pH) ở dạng normalized 0..1,
+     * đúng như lưu trong SoilData.
+     */
+    public float growth(float moistureNorm, float phNorm, float fertilityNorm,
+                        float aerationNorm, float organicNorm) {
+        int bonus = (aerationNorm >= aerationThreshold ? 1 : 0) | (organicNorm >= organicThreshold ? 2 : 0);
+        return sample(moisture, moistureScale, moistureNorm) * sample(ph, phScale, phNorm)
+                * sample(fertility, fertilityScale, fertilityNorm) * intensive[bonus];
+    }
+}
@@ -2,7 +2,14 @@ package com.khanhromvn.realisticharvest.crop;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.khanhromvn.realisticharvest.data.ProfileWarnings;
 import net.minecraft.util.ResourceLocation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * CropProfile biểu diễn yêu cầu & tham số tăng trưởng cho một loại crop.
@@ -28,6 +35,11 @@ import net.minecraft.util.ResourceLocation;
  */
 public class CropProfile {
 
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Version layout nhị phân (write / read) trong cache profile; tăng khi thêm / đổi field. */
+    public static final int BINARY_VERSION = 1;
+
     public static class Range {
         public final float min;
         public final float max;
@@ -65,6 +77,10 @@ public class CropProfile {
     public final float organicThreshold;
     public final float organicBonus;
 
+    // Dạng compile (bảng tra) của computeGrowth: chỉ dựng khi compiledGrowthTables bật (xem growthTable())
+    private CropGrowthTable growthTable;
+    private volatile boolean growthTableBuilt;
+
     public CropProfile(ResourceLocation cropId,
                        Range moistureRange,
                        Range phRange,
@@ -91,13 +107,43 @@ public class CropProfile {
         this.organicBonus = organicBonus;
     }
 
+    /**
+     * Bảng tra của computeGrowth, dựng ở lần gọi đầu; null nếu range quá hẹp để bảng đạt
+     * CropGrowthTable.ERROR_BOUND (khi đó dùng computeGrowth).
+     */
+    public CropGrowthTable growthTable() {
+        if (!growthTableBuilt) {
+            synchronized (this) {
+                if (!growthTableBuilt) {
+                    growthTable = CropGrowthTable.compile(this);
+                    growthTableBuilt = true;
+                }
+            }
+        }
+        return growthTable;
+    }
+
+    /**
+     * Parse + validate; ném IllegalArgumentException nếu thiếu "optimal". Giá trị ngoài miền hợp lệ được
+     * clamp (NaN => mặc định), range min > max được đổi chỗ; mỗi lần sửa log cảnh báo, profile vẫn được load.
+     */
     public static CropProfile fromJson(ResourceLocation id, JsonObject root) {
+        return fromJson(id, root, new ProfileWarnings());
+    }
+
+    /**
+     * Như fromJson(ResourceLocation, JsonObject); mỗi giá trị phải sửa được đếm vào warnings.
+     */
+    public static CropProfile fromJson(ResourceLocation id, JsonObject root, ProfileWarnings warnings) {
+        if (!root.has("optimal") || !root.get("optimal").isJsonObject()) {
+            throw new IllegalArgumentException("missing 'optimal'");
+        }
         JsonObject optimal = root.getAsJsonObject("optimal");
         Range moisture = toRange(optimal.getAsJsonObject("moisture"));
         Range ph = toRange(optimal.getAsJsonObject("ph"));
         Range fertility = toRange(optimal.getAsJsonObject("fertility"));
 
-        JsonObject stress = root.getAsJsonObject("stress_penalty");
+        JsonObject stress = root.has("stress_penalty") ? root.getAsJsonObject("stress_penalty") : new JsonObject();
         float moisturePen = getFloat(stress, "moisture", 0.4f);
         float phPen = getFloat(stress, "ph", 0.3f);
         float fertilityPen = getFloat(stress, "fertility", 0.5f);
@@ -113,12 +159,89 @@ public class CropProfile {
         float organicThr = getFloat(organicObj, "threshold", 0.5f);
         float organicBon = getFloat(organicObj, "bonus", 0.07f);
 
+        moisture = clampRange(warnings, id, "optimal.moisture", moisture, 0f, 1f);
+        ph = clampRange(warnings, id, "optimal.ph", ph, 0f, 14f);
+        fertility = clampRange(warnings, id, "optimal.fertility", fertility, 0f, 1f);
+        moisturePen = clamp(warnings, id, "stress_penalty.moisture", moisturePen, 0f, 1f, 0.4f);
+        phPen = clamp(warnings, id, "stress_penalty.ph", phPen, 0f, 1f, 0.3f);
+        fertilityPen = clamp(warnings, id, "stress_penalty.fertility", fertilityPen, 0f, 1f, 0.5f);
+        growthMultiplier = clamp(warnings, id, "growth_multiplier", growthMultiplier, 0f, Float.MAX_VALUE, 1.0f);
+        aerationThr = clamp(warnings, id, "intensive_bonus.aeration.threshold", aerationThr, 0f, 1f, 0.6f);
+        aerationBon = clamp(warnings, id, "intensive_bonus.aeration.bonus", aerationBon, 0f, Float.MAX_VALUE, 0.05f);
+        organicThr = clamp(warnings, id, "intensive_bonus.organic_matter.threshold", organicThr, 0f, 1f, 0.5f);
+        organicBon = clamp(warnings, id, "intensive_bonus.organic_matter.bonus", organicBon, 0f, Float.MAX_VALUE, 0.07f);
+
         return new CropProfile(id, moisture, ph, fertility,
                 moisturePen, phPen, fertilityPen,
                 growthMultiplier,
                 aerationThr, aerationBon, organicThr, organicBon);
     }
 
+    /**
+     * Ghi dạng nhị phân (cache profile đã compile). cropId không ghi, do cache lưu id riêng.
+     */
+    public void write(DataOutput out) throws IOException {
+        writeRange(out, moistureRange);
+        writeRange(out, phRange);
+        writeRange(out, fertilityRange);
+        out.writeFloat(moisturePenalty);
+        out.writeFloat(phPenalty);
+        out.writeFloat(fertilityPenalty);
+        out.writeFloat(baseGrowthMultiplier);
+        out.writeFloat(aerationThreshold);
+        out.writeFloat(aerationBonus);
+        out.writeFloat(organicThreshold);
+        out.writeFloat(organicBonus);
+    }
+
+    /**
+     * Đọc lại dạng của write. Dữ liệu đã được validate lúc parse JSON; bảng tăng trưởng không nằm trong cache,
+     * được dựng lười ở lần gọi growthTable() đầu tiên (như profile parse từ JSON).
+     */
+    public static CropProfile read(ResourceLocation id, DataInput in) throws IOException {
+        Range moisture = readRange(in);
+        Range ph = readRange(in);
+        Range fertility = readRange(in);
+        return new CropProfile(id, moisture, ph, fertility,
+                in.readFloat(), in.readFloat(), in.readFloat(),
+                in.readFloat(),
+                in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    private static void writeRange(DataOutput out, Range r) throws IOException {
+        out.writeFloat(r.min);
+        out.writeFloat(r.max);
+    }
+
+    private static Range readRange(DataInput in) throws IOException {
+        float min = in.readFloat();
+        return new Range(min, in.readFloat());
+    }
+
+    /** v trong [lo, hi]; NaN => def. Log cảnh báo (và đếm vào warnings) khi phải sửa. */
+    private static float clamp(ProfileWarnings warnings, ResourceLocation id, String field,
+                               float v, float lo, float hi, float def) {
+        if (v >= lo && v <= hi) return v;
+        float fixed = v != v ? def : (v < lo ? lo : hi);
+        warnings.add();
+        LOGGER.warn("[CropProfile] {}: {} = {} out of [{}, {}], using {}", id, field, v, lo, hi, fixed);
+        return fixed;
+    }
+
+    private static Range clampRange(ProfileWarnings warnings, ResourceLocation id, String field,
+                                    Range r, float lo, float hi) {
+        float min = clamp(warnings, id, field + ".min", r.min, lo, hi, lo);
+        float max = clamp(warnings, id, field + ".max", r.max, lo, hi, hi);
+        if (min > max) {
+            warnings.add();
+            LOGGER.warn("[CropProfile] {}: {} min {} > max {}, swapping", id, field, min, max);
+            float t = min;
+            min = max;
+            max = t;
+        }
+        return min == r.min && max == r.max ? r : new Range(min, max);
+    }
+
     private static Range toRange(JsonObject obj) {
         return new Range(getFloat(obj, "min", 0f), getFloat(obj, "max", 1f));
     }
@@ -147,7 +270,7 @@ public class CropProfile {
         return base * (1f + intensiveBonus);
     }
 
-    private float factor(Range r, float value, float penalty) {
+    static float factor(Range r, float value, float penalty) {
         float dist = r.distance(value);
         if (dist == 0f) return 1f;
         // Dist scale thô: clamp 0..1
@@ -1,21 +1,23 @@
 package com.khanhromvn.realisticharvest.crop;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.khanhromvn.realisticharvest.RealisticHarvest;
-import net.minecraft.resources.IResourceManager;
+import com.khanhromvn.realisticharvest.data.JsonProfileReloadListener;
+import com.khanhromvn.realisticharvest.data.ProfileWarnings;
+import net.minecraft.block.Block;
 import net.minecraft.util.ResourceLocation;
 import net.minecraftforge.event.AddReloadListenerEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.registries.ForgeRegistries;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 /**
@@ -23,79 +25,92 @@ import java.util.Map;
  * data/realisticharvest/crops/*.json
  *
  * Cơ chế:
- * - Đăng ký làm reload listener qua AddReloadListenerEvent.
- * - Khi reload: quét tất cả resources có prefix folder "crops".
- * - Parse JSON -> CropProfile -> cache vào MAP.
+ * - Đăng ký reload listener hai pha (JsonProfileReloadListener) qua AddReloadListenerEvent.
+ * - Prepare (thread nền): quét resources folder "crops", parse + validate từng file song song -> CropProfile.
+ * - Apply (game thread): thay PROFILE_MAP bằng map bất biến mới, rồi compile sang bảng theo Block
+ *   (IdentityHashMap, key là instance Block đã đăng ký): CropGrowthHandler tra bằng getProfile(Block)
+ *   mỗi random tick, không cần getRegistryName / hash ResourceLocation.
+ *   Cả hai map chỉ được thay nguyên khối (volatile), không sửa tại chỗ => đọc an toàn từ mọi thread.
  *
  * Tích hợp sử dụng:
  * CropProfileLoader.getProfile(new ResourceLocation("minecraft", "wheat"));
- *
- * TODO:
- * - Validation chi tiết (range logic)
- * - Log cảnh báo khi thiếu field
- * - Thêm fertilizer profile loader tương tự
  */
 @Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
 public class CropProfileLoader {
 
     private static final Logger LOGGER = LogManager.getLogger();
-    private static final Gson GSON = new Gson();
 
-    private static final Map<ResourceLocation, CropProfile> PROFILE_MAP = new HashMap<>();
+    private static volatile Map<ResourceLocation, CropProfile> PROFILE_MAP = Collections.emptyMap();
+
+    private static volatile Map<Block, CropProfile> BY_BLOCK = Collections.emptyMap();
 
     public static CropProfile getProfile(ResourceLocation id) {
         return PROFILE_MAP.get(id);
     }
 
+    /**
+     * Đường nhanh cho random tick: tra theo identity của Block, null nếu block không có profile.
+     */
+    public static CropProfile getProfile(Block block) {
+        return BY_BLOCK.get(block);
+    }
+
     public static Map<ResourceLocation, CropProfile> getAll() {
-        return Collections.unmodifiableMap(PROFILE_MAP);
+        return PROFILE_MAP;
+    }
+
+    private static void apply(Map<ResourceLocation, CropProfile> profiles) {
+        PROFILE_MAP = profiles;
+        compile(profiles);
     }
 
     /**
-     * Reload logic thực hiện parse.
+     * PROFILE_MAP -> bảng theo Block. Id không ứng với block đã đăng ký bị bỏ qua (cảnh báo).
      */
-    private static void reload(IResourceManager resourceManager) {
-        PROFILE_MAP.clear();
-        String folder = "crops";
-
-        int loaded = 0;
-        for (ResourceLocation rl : resourceManager.listResources(folder, path -> path.endsWith(".json"))) {
-            // Expect path: realisticharvest:crops/wheat.json
-            if (!"realisticharvest".equals(rl.getNamespace()))
+    private static void compile(Map<ResourceLocation, CropProfile> profiles) {
+        Map<Block, CropProfile> byBlock = new IdentityHashMap<>();
+        for (Map.Entry<ResourceLocation, CropProfile> e : profiles.entrySet()) {
+            if (!ForgeRegistries.BLOCKS.containsKey(e.getKey())) {
+                LOGGER.warn("[CropProfileLoader] Unknown crop block {}", e.getKey());
                 continue;
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(resourceManager.getResource(rl).getInputStream(), StandardCharsets.UTF_8))) {
-                JsonObject root = GSON.fromJson(reader, JsonObject.class);
-                if (root == null) {
-                    LOGGER.warn("[CropProfileLoader] Empty JSON: {}", rl);
-                    continue;
-                }
-                // Field 'crop' nếu có dùng làm override id; nếu không lấy từ filename
-                ResourceLocation cropId;
-                if (root.has("crop")) {
-                    cropId = new ResourceLocation(root.get("crop").getAsString());
-                } else {
-                    // filename = crops/<name>.json
-                    String p = rl.getPath(); // crops/wheat.json
-                    String name = p.substring(p.lastIndexOf('/') + 1, p.length() - ".json".length());
-                    cropId = new ResourceLocation("minecraft", name); // fallback namespace
-                }
-                CropProfile profile = CropProfile.fromJson(cropId, root);
-                PROFILE_MAP.put(cropId, profile);
-                loaded++;
-            } catch (Exception e) {
-                LOGGER.error("[CropProfileLoader] Failed to parse {} : {}", rl, e.getMessage());
             }
+            byBlock.put(ForgeRegistries.BLOCKS.getValue(e.getKey()), e.getValue());
         }
-        LOGGER.info("[CropProfileLoader] Loaded {} crop profiles", loaded);
+        BY_BLOCK = byBlock;
     }
 
     @SubscribeEvent
     public static void addReloadListener(AddReloadListenerEvent event) {
-        event.addListener(
-                (net.minecraftforge.resource.ISelectiveResourceReloadListener) (resourceManager, predicate) -> {
-                    LOGGER.info("[CropProfileLoader] Resource reload triggered.");
-                    reload(resourceManager);
-                });
+        event.addListener(new JsonProfileReloadListener<CropProfile>("crops", "CropProfileLoader",
+                CropProfile.BINARY_VERSION) {
+            @Override
+            protected ResourceLocation profileId(ResourceLocation file, JsonObject root) {
+                // Field 'crop' nếu có dùng làm override id; nếu không lấy từ filename (namespace minecraft)
+                if (root.has("crop")) {
+                    return new ResourceLocation(root.get("crop").getAsString());
+                }
+                return new ResourceLocation("minecraft", baseName(file));
+            }
+
+            @Override
+            protected CropProfile parse(ResourceLocation id, JsonObject root, ProfileWarnings warnings) {
+                return CropProfile.fromJson(id, root, warnings);
+            }
+
+            @Override
+            protected void writeProfile(CropProfile profile, DataOutput out) throws IOException {
+                profile.write(out);
+            }
+
+            @Override
+            protected CropProfile readProfile(ResourceLocation id, DataInput in) throws IOException {
+                return CropProfile.read(id, in);
+            }
+
+            @Override
+            protected void apply(Map<ResourceLocation, CropProfile> profiles) {
+                CropProfileLoader.apply(profiles);
+            }
+        });
     }
 }
@@ -0,0 +1,151 @@
+package com.khanhromvn.realisticharvest.data;
+
+import net.minecraft.util.ResourceLocation;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CompiledProfileCache: cache nhị phân các profile đã parse + validate, một file cho mỗi folder profile
+ * (&lt;game dir&gt;/realisticharvest/cache/&lt;folder&gt;.bin).
+ *
+ * Key = SHA-256 trên (FORMAT, version profile, folder, danh sách file theo thứ tự + nội dung từng file).
+ * Datapack đổi bất kỳ byte nào / thêm / bớt / đổi thứ tự file => hash khác => parse JSON lại và ghi đè cache.
+ * Khớp hash => đọc cả file một lần và decode DataInput, không qua Gson / JsonObject.
+ *
+ * Layout: int MAGIC, int FORMAT, byte[32] hash, int count, rồi count x (UTF id, dữ liệu profile).
+ * File hỏng / khác format => coi như miss. Ghi qua file tạm + move để không để lại file dở dang.
+ */
+final class CompiledProfileCache {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final int MAGIC = 0x52484350; // "RHCP"
+    /** Đổi khi layout file đổi. */
+    private static final int FORMAT = 1;
+    private static final int HASH_LENGTH = 32;
+
+    interface ProfileReader<P> {
+        P read(ResourceLocation id, DataInput in) throws IOException;
+    }
+
+    interface ProfileWriter<P> {
+        void write(P profile, DataOutput out) throws IOException;
+    }
+
+    private final Path file;
+
+    CompiledProfileCache(String folder) {
+        this(FMLPaths.GAMEDIR.get().resolve("realisticharvest").resolve("cache").resolve(folder + ".bin"));
+    }
+
+    CompiledProfileCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @param contents nội dung từng file (song song với files), null nếu không đọc được
+     */
+    static byte[] hash(String folder, int profileVersion, List<ResourceLocation> files, List<byte[]> contents) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, FORMAT);
+        update(digest, profileVersion);
+        digest.update(folder.getBytes(StandardCharsets.UTF_8));
+        update(digest, files.size());
+        for (int i = 0; i < files.size(); i++) {
+            byte[] name = files.get(i).toString().getBytes(StandardCharsets.UTF_8);
+            update(digest, name.length);
+            digest.update(name);
+            byte[] content = contents.get(i);
+            update(digest, content != null ? content.length : -1);
+            if (content != null) {
+                digest.update(content);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, int v) {
+        digest.update((byte) (v >>> 24));
+        digest.update((byte) (v >>> 16));
+        digest.update((byte) (v >>> 8));
+        digest.update((byte) v);
+    }
+
+    /**
+     * @return map profile bất biến nếu cache tồn tại và khớp hash, ngược lại null
+     */
+    <P> Map<ResourceLocation, P> read(byte[] hash, ProfileReader<P> reader) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.warn("[CompiledProfileCache] Cannot read {} : {}", file, e.getMessage());
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) return null;
+            byte[] stored = new byte[HASH_LENGTH];
+            in.readFully(stored);
+            if (!MessageDigest.isEqual(stored, hash)) return null;
+            int count = in.readInt();
+            if (count < 0) return null;
+            Map<ResourceLocation, P> profiles = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                ResourceLocation id = new ResourceLocation(in.readUTF());
+                profiles.put(id, reader.read(id, in));
+            }
+            return Collections.unmodifiableMap(profiles);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("[CompiledProfileCache] Ignoring corrupt cache {} : {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    <P> void write(byte[] hash, Map<ResourceLocation, P> profiles, ProfileWriter<P> writer) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.write(hash);
+            out.writeInt(profiles.size());
+            for (Map.Entry<ResourceLocation, P> e : profiles.entrySet()) {
+                out.writeUTF(e.getKey().toString());
+                writer.write(e.getValue(), out);
+            }
+            out.flush();
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, buffer.toByteArray());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("[CompiledProfileCache] Cannot write {} : {}", file, e.getMessage());
+        }
+    }
+}
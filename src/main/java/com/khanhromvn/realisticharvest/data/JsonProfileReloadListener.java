@@ -0,0 +1,211 @@
+package com.khanhromvn.realisticharvest.data;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.khanhromvn.realisticharvest.RealisticHarvest;
+import net.minecraft.profiler.IProfiler;
+import net.minecraft.resources.IFutureReloadListener;
+import net.minecraft.resources.IResource;
+import net.minecraft.resources.IResourceManager;
+import net.minecraft.util.ResourceLocation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * JsonProfileReloadListener: reload listener hai pha cho profile JSON trong datapack
+ * (data/realisticharvest/&lt;folder&gt;/*.json).
+ *
+ * - Prepare (background executor của reload): liệt kê file, đọc thô song song rồi hash nội dung.
+ *   Hash khớp CompiledProfileCache => decode profile từ file nhị phân, không parse JSON.
+ *   Ngược lại mỗi file một task parse + validate song song; file lỗi chỉ log và bị bỏ qua, file có giá trị
+ *   phải clamp được load kèm cảnh báo. Cache chỉ được ghi khi không có lỗi / cảnh báo nào.
+ *   Kết quả gom thành map bất biến (thứ tự file giữ như listResources => id trùng thì file sau thắng, như trước).
+ * - Apply (game thread, sau stage.wait): map mới được giao cho loader để thay nguyên khối
+ *   (volatile) => reader ở bất kỳ thread nào không bao giờ thấy map rỗng / dở dang.
+ */
+public abstract class JsonProfileReloadListener<P> implements IFutureReloadListener {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final Gson GSON = new Gson();
+
+    private final String folder;
+    private final String tag;
+    private final int binaryVersion;
+    private final CompiledProfileCache cache;
+
+    /**
+     * @param folder thư mục trong data/&lt;namespace&gt;/ (vd. "crops")
+     * @param tag tiền tố log (vd. "CropProfileLoader")
+     * @param binaryVersion version layout writeProfile / readProfile (đổi => cache cũ tự mất hiệu lực)
+     */
+    protected JsonProfileReloadListener(String folder, String tag, int binaryVersion) {
+        this(folder, tag, binaryVersion, new CompiledProfileCache(folder));
+    }
+
+    /** Cache chỉ định (test: file cache ngoài game dir). */
+    JsonProfileReloadListener(String folder, String tag, int binaryVersion, CompiledProfileCache cache) {
+        this.folder = folder;
+        this.tag = tag;
+        this.binaryVersion = binaryVersion;
+        this.cache = cache;
+    }
+
+    /** Id của profile (field id trong JSON hoặc suy từ tên file). Gọi trên thread nền. */
+    protected abstract ResourceLocation profileId(ResourceLocation file, JsonObject root);
+
+    /**
+     * Parse + validate (ném exception nếu không dùng được). Giá trị phải sửa (clamp) được đếm vào warnings:
+     * file vẫn được load nhưng chặn ghi cache. Gọi song song trên thread nền.
+     */
+    protected abstract P parse(ResourceLocation id, JsonObject root, ProfileWarnings warnings);
+
+    /** Thay map profile (game thread). */
+    protected abstract void apply(Map<ResourceLocation, P> profiles);
+
+    /** Ghi profile dạng nhị phân vào cache đã compile. */
+    protected abstract void writeProfile(P profile, DataOutput out) throws IOException;
+
+    /** Đọc lại profile từ cache đã compile (dạng của writeProfile). */
+    protected abstract P readProfile(ResourceLocation id, DataInput in) throws IOException;
+
+    @Override
+    public CompletableFuture<Void> reload(IStage stage, IResourceManager resourceManager,
+                                          IProfiler preparationsProfiler, IProfiler reloadProfiler,
+                                          Executor backgroundExecutor, Executor gameExecutor) {
+        return CompletableFuture.supplyAsync(() -> listFiles(resourceManager), backgroundExecutor)
+                .thenCompose(files -> readAll(resourceManager, files, backgroundExecutor)
+                        .thenCompose(contents -> load(files, contents, backgroundExecutor)))
+                .thenCompose(stage::wait)
+                .thenAcceptAsync(profiles -> {
+                    apply(profiles);
+                    LOGGER.info("[{}] Loaded {} profiles", tag, profiles.size());
+                }, gameExecutor);
+    }
+
+    private List<ResourceLocation> listFiles(IResourceManager resourceManager) {
+        LOGGER.info("[{}] Resource reload triggered.", tag);
+        Collection<ResourceLocation> all = resourceManager.listResources(folder, path -> path.endsWith(".json"));
+        List<ResourceLocation> files = new ArrayList<>(all.size());
+        for (ResourceLocation rl : all) {
+            if (RealisticHarvest.MOD_ID.equals(rl.getNamespace())) {
+                files.add(rl);
+            }
+        }
+        return files;
+    }
+
+    /** Đọc thô mọi file song song (cần cho hash cả khi cache trúng). Phần tử null = đọc lỗi. */
+    private CompletableFuture<List<byte[]>> readAll(IResourceManager resourceManager,
+                                                    List<ResourceLocation> files, Executor executor) {
+        List<CompletableFuture<byte[]>> tasks = new ArrayList<>(files.size());
+        for (ResourceLocation file : files) {
+            tasks.add(CompletableFuture.supplyAsync(() -> readFile(resourceManager, file), executor));
+        }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<byte[]> contents = new ArrayList<>(tasks.size());
+            for (CompletableFuture<byte[]> task : tasks) {
+                contents.add(task.join());
+            }
+            return contents;
+        });
+    }
+
+    private byte[] readFile(IResourceManager resourceManager, ResourceLocation file) {
+        try (IResource resource = resourceManager.getResource(file);
+             InputStream in = resource.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (Exception e) {
+            LOGGER.error("[{}] Failed to read {} : {}", tag, file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hash trúng cache => decode nhị phân, bỏ qua Gson. Trượt => parse JSON song song rồi ghi lại cache
+     * (chỉ khi mọi file hợp lệ và không có cảnh báo, để lỗi / cảnh báo datapack vẫn được log ở lần khởi động sau).
+     */
+    CompletableFuture<Map<ResourceLocation, P>> load(List<ResourceLocation> files, List<byte[]> contents,
+                                                     Executor executor) {
+        byte[] hash = CompiledProfileCache.hash(folder, binaryVersion, files, contents);
+        Map<ResourceLocation, P> cached = cache.read(hash, this::readProfile);
+        if (cached != null) {
+            LOGGER.info("[{}] Using compiled profile cache ({} files)", tag, files.size());
+            return CompletableFuture.completedFuture(cached);
+        }
+        List<CompletableFuture<Map.Entry<ResourceLocation, P>>> tasks = new ArrayList<>(files.size());
+        List<ProfileWarnings> warnings = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            ResourceLocation file = files.get(i);
+            byte[] content = contents.get(i);
+            ProfileWarnings fileWarnings = new ProfileWarnings();
+            warnings.add(fileWarnings);
+            tasks.add(CompletableFuture.supplyAsync(() -> parseFile(file, content, fileWarnings), executor));
+        }
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<ResourceLocation, P> profiles = new HashMap<>();
+            boolean complete = true;
+            for (int i = 0; i < tasks.size(); i++) {
+                Map.Entry<ResourceLocation, P> e = tasks.get(i).join();
+                if (e != null) {
+                    profiles.put(e.getKey(), e.getValue());
+                } else {
+                    complete = false;
+                }
+                if (warnings.get(i).count() > 0) {
+                    complete = false;
+                }
+            }
+            if (complete) {
+                cache.write(hash, profiles, this::writeProfile);
+            }
+            return Collections.unmodifiableMap(profiles);
+        });
+    }
+
+    private Map.Entry<ResourceLocation, P> parseFile(ResourceLocation file, byte[] content, ProfileWarnings warnings) {
+        if (content == null) return null;
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+            JsonObject root = GSON.fromJson(reader, JsonObject.class);
+            if (root == null) {
+                LOGGER.warn("[{}] Empty JSON: {}", tag, file);
+                return null;
+            }
+            ResourceLocation id = profileId(file, root);
+            return new AbstractMap.SimpleImmutableEntry<>(id, parse(id, root, warnings));
+        } catch (Exception e) {
+            LOGGER.error("[{}] Failed to parse {} : {}", tag, file, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Tên file không đuôi: "crops/wheat.json" -> "wheat". */
+    protected static String baseName(ResourceLocation file) {
+        String p = file.getPath();
+        return p.substring(p.lastIndexOf('/') + 1, p.length() - ".json".length());
+    }
+}
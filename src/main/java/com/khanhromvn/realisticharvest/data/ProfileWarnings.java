@@ -0,0 +1,20 @@
+package com.khanhromvn.realisticharvest.data;
+
+/**
+ * ProfileWarnings: đếm cảnh báo (giá trị bị clamp / sửa) khi parse một file profile.
+ * JsonProfileReloadListener tạo một instance cho mỗi file; file có cảnh báo vẫn được load nhưng không
+ * được ghi vào CompiledProfileCache, để cảnh báo còn được log ở lần khởi động sau.
+ * Mỗi instance chỉ dùng trên một thread.
+ */
+public final class ProfileWarnings {
+
+    private int count;
+
+    public void add() {
+        count++;
+    }
+
+    public int count() {
+        return count;
+    }
+}
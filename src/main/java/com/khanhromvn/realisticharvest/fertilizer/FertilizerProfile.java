@@ -2,7 +2,14 @@ package com.khanhromvn.realisticharvest.fertilizer;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.khanhromvn.realisticharvest.data.ProfileWarnings;
 import net.minecraft.util.ResourceLocation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /**
  * FertilizerProfile mô tả hiệu ứng phân bón data-driven.
@@ -19,6 +26,11 @@ import net.minecraft.util.ResourceLocation;
  */
 public class FertilizerProfile {
 
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Version layout nhị phân (write / read) trong cache profile; tăng khi thêm / đổi field. */
+    public static final int BINARY_VERSION = 1;
+
     public final ResourceLocation id;
     public final float fertilityBoost;
     public final float organicBoost;
@@ -37,14 +49,50 @@ public class FertilizerProfile {
         this.phShift = phShift;
     }
 
+    /**
+     * Parse + validate: giá trị ngoài miền hợp lệ được clamp (NaN => mặc định) kèm log cảnh báo.
+     */
     public static FertilizerProfile fromJson(ResourceLocation id, JsonObject root) {
+        return fromJson(id, root, new ProfileWarnings());
+    }
+
+    /**
+     * Như fromJson(ResourceLocation, JsonObject); mỗi giá trị phải sửa được đếm vào warnings.
+     */
+    public static FertilizerProfile fromJson(ResourceLocation id, JsonObject root, ProfileWarnings warnings) {
         float fertility = getFloat(root, "fertility_boost", 0f);
         float organic = getFloat(root, "organic_boost", 0f);
         float decay = getFloat(root, "decay_rate", 0.001f);
         float ph = getFloat(root, "ph_shift", 0f);
+        fertility = clamp(warnings, id, "fertility_boost", fertility, -1f, 1f, 0f);
+        organic = clamp(warnings, id, "organic_boost", organic, -1f, 1f, 0f);
+        decay = clamp(warnings, id, "decay_rate", decay, 0f, 1f, 0.001f);
+        ph = clamp(warnings, id, "ph_shift", ph, -7f, 7f, 0f);
         return new FertilizerProfile(id, fertility, organic, decay, ph);
     }
 
+    /** Ghi dạng nhị phân cho cache profile (id do cache lưu riêng). */
+    public void write(DataOutput out) throws IOException {
+        out.writeFloat(fertilityBoost);
+        out.writeFloat(organicBoost);
+        out.writeFloat(decayRate);
+        out.writeFloat(phShift);
+    }
+
+    public static FertilizerProfile read(ResourceLocation id, DataInput in) throws IOException {
+        return new FertilizerProfile(id, in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat());
+    }
+
+    /** v trong [lo, hi]; NaN => def. Log cảnh báo (và đếm vào warnings) khi phải sửa. */
+    private static float clamp(ProfileWarnings warnings, ResourceLocation id, String field,
+                               float v, float lo, float hi, float def) {
+        if (v >= lo && v <= hi) return v;
+        float fixed = v != v ? def : (v < lo ? lo : hi);
+        warnings.add();
+        LOGGER.warn("[FertilizerProfile] {}: {} = {} out of [{}, {}], using {}", id, field, v, lo, hi, fixed);
+        return fixed;
+    }
+
     private static float getFloat(JsonObject obj, String key, float def) {
         JsonElement e = obj.get(key);
         return e != null && e.isJsonPrimitive() ? e.getAsFloat() : def;
@@ -1,22 +1,18 @@
 package com.khanhromvn.realisticharvest.fertilizer;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.khanhromvn.realisticharvest.RealisticHarvest;
-import net.minecraft.resources.IResourceManager;
-import net.minecraft.resources.IResourceManagerReloadListener;
+import com.khanhromvn.realisticharvest.data.JsonProfileReloadListener;
+import com.khanhromvn.realisticharvest.data.ProfileWarnings;
 import net.minecraft.util.ResourceLocation;
 import net.minecraftforge.event.AddReloadListenerEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -33,62 +29,56 @@ import java.util.Map;
  *   "ph_shift": 0.0
  * }
  *
+ * Reload hai pha (JsonProfileReloadListener): parse + validate song song trên thread nền,
+ * map bất biến mới được thay nguyên khối trên game thread => getProfile an toàn từ mọi thread.
+ *
  * Sử dụng:
  *   FertilizerProfileLoader.getProfile(new ResourceLocation("realisticharvest", "nitrogen_mix_fertilizer"));
  */
 @Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
 public class FertilizerProfileLoader {
 
-    private static final Logger LOGGER = LogManager.getLogger();
-    private static final Gson GSON = new Gson();
-
-    private static final Map<ResourceLocation, FertilizerProfile> PROFILE_MAP = new HashMap<>();
+    private static volatile Map<ResourceLocation, FertilizerProfile> PROFILE_MAP = Collections.emptyMap();
 
     public static FertilizerProfile getProfile(ResourceLocation id) {
         return PROFILE_MAP.get(id);
     }
 
     public static Map<ResourceLocation, FertilizerProfile> getAll() {
-        return Collections.unmodifiableMap(PROFILE_MAP);
+        return PROFILE_MAP;
     }
 
-    private static void reload(IResourceManager resourceManager) {
-        PROFILE_MAP.clear();
-        String folder = "fertilizers";
-        int loaded = 0;
-
-        for (ResourceLocation rl : resourceManager.listResources(folder, path -> path.endsWith(".json"))) {
-            if (!RealisticHarvest.MOD_ID.equals(rl.getNamespace())) continue;
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(resourceManager.getResource(rl).getInputStream(), StandardCharsets.UTF_8))) {
-                JsonObject root = GSON.fromJson(reader, JsonObject.class);
-                if (root == null) {
-                    LOGGER.warn("[FertilizerProfileLoader] Empty JSON: {}", rl);
-                    continue;
-                }
-                ResourceLocation id;
+    @SubscribeEvent
+    public static void addReloadListener(AddReloadListenerEvent event) {
+        event.addListener(new JsonProfileReloadListener<FertilizerProfile>("fertilizers", "FertilizerProfileLoader",
+                FertilizerProfile.BINARY_VERSION) {
+            @Override
+            protected ResourceLocation profileId(ResourceLocation file, JsonObject root) {
                 if (root.has("id")) {
-                    id = new ResourceLocation(root.get("id").getAsString());
-                } else {
-                    String p = rl.getPath(); // fertilizers/compost_fertilizer.json
-                    String name = p.substring(p.lastIndexOf('/') + 1, p.length() - ".json".length());
-                    id = new ResourceLocation(RealisticHarvest.MOD_ID, name);
+                    return new ResourceLocation(root.get("id").getAsString());
                 }
-                FertilizerProfile profile = FertilizerProfile.fromJson(id, root);
-                PROFILE_MAP.put(id, profile);
-                loaded++;
-            } catch (Exception e) {
-                LOGGER.error("[FertilizerProfileLoader] Failed to parse {} : {}", rl, e.getMessage());
+                return new ResourceLocation(RealisticHarvest.MOD_ID, baseName(file)); // fertilizers/compost_fertilizer.json
+            }
+
+            @Override
+            protected FertilizerProfile parse(ResourceLocation id, JsonObject root, ProfileWarnings warnings) {
+                return FertilizerProfile.fromJson(id, root, warnings);
             }
-        }
-        LOGGER.info("[FertilizerProfileLoader] Loaded {} fertilizer profiles", loaded);
-    }
 
- @SubscribeEvent
- public static void addReloadListener(AddReloadListenerEvent event) {
- event.addListener((IResourceManagerReloadListener) (resourceManager) -> {
- LOGGER.info("[FertilizerProfileLoader] Resource reload triggered.");
- reload(resourceManager);
- });
- }
+            @Override
+            protected void writeProfile(FertilizerProfile profile, DataOutput out) throws IOException {
+                profile.write(out);
+            }
+
+            @Override
+            protected FertilizerProfile readProfile(ResourceLocation id, DataInput in) throws IOException {
+                return FertilizerProfile.read(id, in);
+            }
+
+            @Override
+            protected void apply(Map<ResourceLocation, FertilizerProfile> profiles) {
+                PROFILE_MAP = profiles;
+            }
+        });
+    }
 }
@@ -0,0 +1,292 @@
+package com.khanhromvn.realisticharvest.irrigation;
+
+import net.minecraft.util.Direction;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * IrrigationGraph: trạng thái tưới của một dimension.
+ *
+ * - emitters / channels: nguồn theo chunk (key ChunkPos.toLong(), giá trị BlockPos.asLong()).
+ * - networkOf: kênh -> IrrigationNetwork chứa nó. Thêm kênh => nối / merge mạng (gộp mạng nhỏ vào mạng lớn);
+ *   xóa kênh => flood fill từ các kênh kề để tách mạng (chỉ chạy trên mạng bị ảnh hưởng).
+ * - coverage: ChunkCoverage per-chunk (bitmap theo mức y, tính lười). Mọi thay đổi chỉ xóa các mức y
+ *   của 3x3 chunk quanh block thay đổi; đổi trạng thái fed của mạng xóa quanh từng kênh của mạng đó.
+ *
+ * Chỉ truy cập trên server thread.
+ */
+final class IrrigationGraph {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    final Map<Long, Set<Long>> emitters = new HashMap<>();
+    final Map<Long, Set<Long>> channels = new HashMap<>();
+    final Map<Long, IrrigationNetwork> networkOf = new HashMap<>();
+    final Map<Long, IrrigationIndex.ChunkCoverage> coverage = new HashMap<>();
+    private final Set<IrrigationNetwork> networks = new HashSet<>();
+
+    static long chunkKey(long pos) {
+        return ChunkPos.asLong(BlockPos.getX(pos) >> 4, BlockPos.getZ(pos) >> 4);
+    }
+
+    boolean hasSourcesAround(int cx, int cz) {
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                long key = ChunkPos.asLong(cx + dx, cz + dz);
+                if (emitters.containsKey(key) || channels.containsKey(key)) return true;
+            }
+        }
+        return false;
+    }
+
+    /** Chunk (key ChunkPos.toLong()) có emitter hoặc kênh nào không. */
+    boolean hasSourcesIn(long chunk) {
+        return emitters.containsKey(chunk) || channels.containsKey(chunk);
+    }
+
+    boolean isEmitter(long pos) {
+        Set<Long> set = emitters.get(chunkKey(pos));
+        return set != null && set.contains(pos);
+    }
+
+    boolean isFedChannel(long pos) {
+        IrrigationNetwork net = networkOf.get(pos);
+        return net != null && net.fed;
+    }
+
+    int networkCount() {
+        return networks.size();
+    }
+
+    private static boolean addTo(Map<Long, Set<Long>> sources, long pos) {
+        return sources.computeIfAbsent(chunkKey(pos), k -> new HashSet<>()).add(pos);
+    }
+
+    private static boolean removeFrom(Map<Long, Set<Long>> sources, long pos) {
+        long chunk = chunkKey(pos);
+        Set<Long> set = sources.get(chunk);
+        if (set == null || !set.remove(pos)) return false;
+        if (set.isEmpty()) sources.remove(chunk);
+        return true;
+    }
+
+    // ---- Emitter ----
+
+    void addEmitter(long pos) {
+        if (!addTo(emitters, pos)) return;
+        invalidateAround(pos);
+        for (Direction d : DIRECTIONS) {
+            IrrigationNetwork net = networkOf.get(BlockPos.offset(pos, d));
+            if (net != null) setFed(net, true);
+        }
+    }
+
+    void removeEmitter(long pos) {
+        if (!removeFrom(emitters, pos)) return;
+        invalidateAround(pos);
+        for (Direction d : DIRECTIONS) {
+            IrrigationNetwork net = networkOf.get(BlockPos.offset(pos, d));
+            if (net != null && net.fed) setFed(net, computeFed(net));
+        }
+    }
+
+    // ---- Channel ----
+
+    void addChannel(long pos) {
+        if (!addTo(channels, pos)) return;
+        IrrigationNetwork target = null;
+        List<IrrigationNetwork> others = new ArrayList<>(2);
+        boolean fed = touchesEmitter(pos);
+        for (Direction d : DIRECTIONS) {
+            IrrigationNetwork net = networkOf.get(BlockPos.offset(pos, d));
+            if (net == null || net == target || others.contains(net)) continue;
+            fed |= net.fed;
+            if (target == null) {
+                target = net;
+            } else if (net.size() > target.size()) {
+                others.add(target);
+                target = net;
+            } else {
+                others.add(net);
+            }
+        }
+        if (target == null) {
+            target = new IrrigationNetwork();
+            networks.add(target);
+        }
+        // Merge mạng nhỏ vào mạng lớn nhất
+        for (IrrigationNetwork other : others) {
+            setFed(other, fed);
+            for (long c : other.channels) {
+                networkOf.put(c, target);
+            }
+            target.channels.addAll(other.channels);
+            networks.remove(other);
+        }
+        setFed(target, fed);
+        target.channels.add(pos);
+        networkOf.put(pos, target);
+        invalidateAround(pos);
+    }
+
+    void removeChannel(long pos) {
+        if (!removeFrom(channels, pos)) return;
+        IrrigationNetwork net = networkOf.remove(pos);
+        invalidateAround(pos);
+        if (net == null) return;
+        net.channels.remove(pos);
+        if (net.channels.isEmpty()) {
+            networks.remove(net);
+            return;
+        }
+        List<Long> neighbours = new ArrayList<>(6);
+        for (Direction d : DIRECTIONS) {
+            long n = BlockPos.offset(pos, d);
+            if (networkOf.get(n) == net) neighbours.add(n);
+        }
+        if (neighbours.size() > 1) {
+            split(net, neighbours);
+        } else if (net.fed && touchesEmitter(pos)) {
+            setFed(net, computeFed(net));
+        }
+    }
+
+    /**
+     * Flood fill từ từng kênh kề vị trí vừa xóa; mỗi thành phần mới thành một mạng riêng,
+     * thành phần lớn nhất giữ lại object mạng cũ.
+     */
+    private void split(IrrigationNetwork net, List<Long> neighbours) {
+        List<Set<Long>> components = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        int remaining = net.size();
+        for (long start : neighbours) {
+            if (seen.contains(start)) continue;
+            Set<Long> component = flood(net, start);
+            seen.addAll(component);
+            components.add(component);
+            remaining -= component.size();
+            if (remaining == 0) break;
+        }
+        boolean wasFed = net.fed;
+        if (components.size() == 1) {
+            if (wasFed) setFed(net, computeFed(net));
+            return;
+        }
+        Set<Long> largest = components.get(0);
+        for (Set<Long> c : components) {
+            if (c.size() > largest.size()) largest = c;
+        }
+        for (Set<Long> component : components) {
+            if (component == largest) continue;
+            IrrigationNetwork part = new IrrigationNetwork();
+            part.fed = wasFed;
+            part.channels.addAll(component);
+            net.channels.removeAll(component);
+            for (long c : component) {
+                networkOf.put(c, part);
+            }
+            networks.add(part);
+            if (wasFed) setFed(part, computeFed(part));
+        }
+        if (wasFed) setFed(net, computeFed(net));
+    }
+
+    private Set<Long> flood(IrrigationNetwork net, long start) {
+        Set<Long> visited = new HashSet<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        visited.add(start);
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            long p = queue.poll();
+            for (Direction d : DIRECTIONS) {
+                long n = BlockPos.offset(p, d);
+                if (networkOf.get(n) == net && visited.add(n)) {
+                    queue.add(n);
+                }
+            }
+        }
+        return visited;
+    }
+
+    private boolean touchesEmitter(long pos) {
+        for (Direction d : DIRECTIONS) {
+            if (isEmitter(BlockPos.offset(pos, d))) return true;
+        }
+        return false;
+    }
+
+    private boolean computeFed(IrrigationNetwork net) {
+        for (long c : net.channels) {
+            if (touchesEmitter(c)) return true;
+        }
+        return false;
+    }
+
+    /** Đổi trạng thái fed; nếu thay đổi thì coverage quanh mọi kênh của mạng cần tính lại. */
+    private void setFed(IrrigationNetwork net, boolean fed) {
+        if (net.fed == fed) return;
+        net.fed = fed;
+        for (long c : net.channels) {
+            invalidateAround(c);
+        }
+    }
+
+    /**
+     * Đồng bộ nguồn của một chunk với kết quả quét (khi chunk load): chỉ áp dụng phần chênh lệch.
+     */
+    void replaceChunk(long chunk, Set<Long> newEmitters, Set<Long> newChannels) {
+        Set<Long> oldEmitters = emitters.get(chunk);
+        Set<Long> oldChannels = channels.get(chunk);
+        if (oldChannels != null) {
+            for (long p : new ArrayList<>(oldChannels)) {
+                if (!newChannels.contains(p)) removeChannel(p);
+            }
+        }
+        if (oldEmitters != null) {
+            for (long p : new ArrayList<>(oldEmitters)) {
+                if (!newEmitters.contains(p)) removeEmitter(p);
+            }
+        }
+        for (long p : newEmitters) {
+            addEmitter(p);
+        }
+        for (long p : newChannels) {
+            addChannel(p);
+        }
+    }
+
+    private void invalidateAround(long pos) {
+        invalidate(BlockPos.getX(pos) >> 4, BlockPos.getZ(pos) >> 4, BlockPos.getY(pos));
+    }
+
+    /** Xóa mức y của coverage 3x3 chunk quanh (cx, cz). */
+    void invalidate(int cx, int cz, int y) {
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                long key = ChunkPos.asLong(cx + dx, cz + dz);
+                IrrigationIndex.ChunkCoverage c = coverage.get(key);
+                if (c == null) continue;
+                if (c == IrrigationIndex.ChunkCoverage.NONE) {
+                    coverage.remove(key); // NONE có thể không còn đúng => tính lại
+                } else {
+                    c.invalidate(y);
+                }
+            }
+        }
+    }
+
+    int sourceCount() {
+        int n = 0;
+        for (Set<Long> s : emitters.values()) n += s.size();
+        for (Set<Long> s : channels.values()) n += s.size();
+        return n;
+    }
+}
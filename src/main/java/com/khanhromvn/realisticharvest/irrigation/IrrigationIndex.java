@@ -0,0 +1,305 @@
+package com.khanhromvn.realisticharvest.irrigation;
+
+import com.khanhromvn.realisticharvest.RealisticHarvest;
+import com.khanhromvn.realisticharvest.config.RHConfig;
+import com.khanhromvn.realisticharvest.init.ModBlocks;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * IrrigationIndex: chỉ mục tưới theo dimension (IrrigationGraph) + API cho soil tick.
+ *
+ * - Cập nhật bởi BlockEvent.EntityPlaceEvent / BreakEvent và NeighborNotifyEvent (mọi thay đổi block có báo
+ *   láng giềng: nổ, piston, chất lỏng, /setblock, block của mod khác); quét lại chunk khi load
+ *   (chỉ các ChunkSection mà palette có thể chứa block tưới, áp dụng phần chênh lệch).
+ *   Thay đổi không báo láng giềng (flag không có bit 1) chỉ được sửa khi chunk load lại.
+ * - Nguồn của chunk đã unload vẫn giữ (số lượng ít) để mạng / coverage chunk lân cận không đổi.
+ *
+ * Luật tưới:
+ * - WATER_EMITTER: bonus 0.004 trong hình vuông bán kính 4 (cùng y).
+ * - IRRIGATION_CHANNEL: bonus 0.002 trong bán kính 3 (cùng y). Kênh nối nhau (6 mặt) thành IrrigationNetwork;
+ *   mạng kề ít nhất một emitter là "fed". RHConfig.SERVER.channelsRequireEmitter bật => chỉ kênh của mạng fed
+ *   tưới; tắt (mặc định, như bản cũ) => mọi kênh đều tưới.
+ * - Emitter ưu tiên hơn channel.
+ *
+ * Coverage: mỗi chunk một ChunkCoverage, mỗi mức y một bitmap long[8] (emitter 256 bit + channel 256 bit),
+ * tính lười; soil tick chỉ đọc bit => chi phí không phụ thuộc số kênh hay bán kính.
+ */
+@Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
+public final class IrrigationIndex {
+
+    public static final int EMITTER_RADIUS = 4;
+    public static final int CHANNEL_RADIUS = 3;
+    public static final float EMITTER_BONUS = 0.004f;
+    public static final float CHANNEL_BONUS = 0.002f;
+
+    private static final int HEIGHT = 256;
+    private static final int CHANNEL_WORD = 4; // word 0..3: emitter, 4..7: channel
+    private static final long[] EMPTY_LEVEL = new long[8];
+
+    private static final Map<World, IrrigationGraph> DIMENSIONS = new HashMap<>();
+    // Giá trị channelsRequireEmitter mà coverage hiện tại được tính theo
+    private static boolean requireEmitter;
+    // ChunkEvent.Load có thể bắn ngoài main thread => gom lại, quét ở server tick
+    private static final Queue<Chunk> PENDING_LOADS = new ConcurrentLinkedQueue<>();
+
+    private IrrigationIndex() {}
+
+    /**
+     * Bản đồ bonus tưới của một chunk; bonus(x, y, z) là O(1) sau lần tính đầu của mức y.
+     */
+    public static final class ChunkCoverage {
+        /** Không có nguồn tưới nào trong 3x3 chunk xung quanh. */
+        public static final ChunkCoverage NONE = new ChunkCoverage(null, 0, 0);
+
+        private final IrrigationGraph graph;
+        private final int cx;
+        private final int cz;
+        private final long[][] levels;
+
+        ChunkCoverage(IrrigationGraph graph, int cx, int cz) {
+            this.graph = graph;
+            this.cx = cx;
+            this.cz = cz;
+            this.levels = graph == null ? null : new long[HEIGHT][];
+        }
+
+        public float bonus(int x, int y, int z) {
+            if (levels == null || y < 0 || y >= HEIGHT) return 0f;
+            long[] level = levels[y];
+            if (level == null) {
+                level = levels[y] = compute(y);
+            }
+            int i = (z & 15) << 4 | (x & 15);
+            if ((level[i >> 6] & (1L << i)) != 0L) return EMITTER_BONUS;
+            if ((level[CHANNEL_WORD + (i >> 6)] & (1L << i)) != 0L) return CHANNEL_BONUS;
+            return 0f;
+        }
+
+        void invalidate(int y) {
+            if (levels != null && y >= 0 && y < HEIGHT) {
+                levels[y] = null;
+            }
+        }
+
+        private long[] compute(int y) {
+            long[] out = null;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    long key = ChunkPos.asLong(cx + dx, cz + dz);
+                    out = stamp(out, graph.emitters.get(key), y, EMITTER_RADIUS, 0, false);
+                    out = stamp(out, graph.channels.get(key), y, CHANNEL_RADIUS, CHANNEL_WORD, true);
+                }
+            }
+            return out == null ? EMPTY_LEVEL : out;
+        }
+
+        private long[] stamp(long[] out, Set<Long> sources, int y, int radius, int word, boolean needFed) {
+            if (sources == null) return out;
+            int minX = cx << 4;
+            int minZ = cz << 4;
+            for (long p : sources) {
+                if (BlockPos.getY(p) != y) continue;
+                int x0 = Math.max(BlockPos.getX(p) - radius, minX);
+                int x1 = Math.min(BlockPos.getX(p) + radius, minX + 15);
+                int z0 = Math.max(BlockPos.getZ(p) - radius, minZ);
+                int z1 = Math.min(BlockPos.getZ(p) + radius, minZ + 15);
+                if (x0 > x1 || z0 > z1) continue;
+                if (needFed && requireEmitter && !graph.isFedChannel(p)) continue;
+                if (out == null) out = new long[8];
+                for (int z = z0; z <= z1; z++) {
+                    for (int x = x0; x <= x1; x++) {
+                        int i = (z - minZ) << 4 | (x - minX);
+                        out[word + (i >> 6)] |= 1L << i;
+                    }
+                }
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Coverage của chunk (cx, cz). Trả ChunkCoverage.NONE nếu quanh đó không có nguồn tưới.
+     * Chỉ gọi trên server thread.
+     */
+    public static ChunkCoverage coverage(World world, int cx, int cz) {
+        IrrigationGraph graph = DIMENSIONS.get(world);
+        if (graph == null) return ChunkCoverage.NONE;
+        long key = ChunkPos.asLong(cx, cz);
+        ChunkCoverage c = graph.coverage.get(key);
+        if (c == null) {
+            c = graph.hasSourcesAround(cx, cz) ? new ChunkCoverage(graph, cx, cz) : ChunkCoverage.NONE;
+            graph.coverage.put(key, c);
+        }
+        return c;
+    }
+
+    static boolean isSource(BlockState state) {
+        Block block = state.getBlock();
+        return block == ModBlocks.WATER_EMITTER.get() || block == ModBlocks.IRRIGATION_CHANNEL.get();
+    }
+
+    private static IrrigationGraph graph(IWorld world) {
+        if (!(world instanceof ServerWorld)) return null;
+        return DIMENSIONS.computeIfAbsent((World) world, w -> new IrrigationGraph());
+    }
+
+    /**
+     * Đồng bộ nguồn tại pos với state hiện tại của block (thêm / đổi loại / xóa).
+     */
+    private static void sync(IrrigationGraph graph, long pos, BlockState state) {
+        Block block = state.getBlock();
+        if (block == ModBlocks.WATER_EMITTER.get()) {
+            graph.removeChannel(pos);
+            graph.addEmitter(pos);
+        } else if (block == ModBlocks.IRRIGATION_CHANNEL.get()) {
+            graph.removeEmitter(pos);
+            graph.addChannel(pos);
+        } else {
+            graph.removeEmitter(pos);
+            graph.removeChannel(pos);
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onBlockPlace(BlockEvent.EntityPlaceEvent event) {
+        BlockState state = event.getPlacedBlock();
+        if (!isSource(state)) return;
+        IrrigationGraph graph = graph(event.getWorld());
+        if (graph == null) return;
+        sync(graph, event.getPos().asLong(), state);
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onBlockBreak(BlockEvent.BreakEvent event) {
+        if (!isSource(event.getState())) return;
+        IrrigationGraph graph = graph(event.getWorld());
+        if (graph == null) return;
+        long pos = event.getPos().asLong();
+        graph.removeEmitter(pos);
+        graph.removeChannel(pos);
+    }
+
+    /**
+     * Bắn sau khi block tại pos đã đổi (kể cả nổ, piston, chất lỏng, /setblock) => đồng bộ theo state mới.
+     * Nhận cả event đã bị hủy: hủy chỉ chặn cập nhật láng giềng, block vẫn đã đổi.
+     * Block không phải nguồn trong chunk không có nguồn nào: chỉ một lần tra map.
+     */
+    @SubscribeEvent(priority = EventPriority.LOWEST, receiveCanceled = true)
+    public static void onNeighborNotify(BlockEvent.NeighborNotifyEvent event) {
+        if (!(event.getWorld() instanceof ServerWorld)) return;
+        BlockState state = event.getState();
+        boolean source = isSource(state);
+        IrrigationGraph graph = source ? graph(event.getWorld()) : DIMENSIONS.get((World) event.getWorld());
+        if (graph == null) return;
+        long pos = event.getPos().asLong();
+        if (!source && !graph.hasSourcesIn(IrrigationGraph.chunkKey(pos))) return;
+        sync(graph, pos, state);
+    }
+
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        if (event.getWorld() instanceof ServerWorld && event.getChunk() instanceof Chunk) {
+            PENDING_LOADS.add((Chunk) event.getChunk());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (!(event.getWorld() instanceof ServerWorld)) return;
+        IrrigationGraph graph = DIMENSIONS.get((World) event.getWorld());
+        if (graph != null) {
+            graph.coverage.remove(event.getChunk().getPos().toLong());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onWorldUnload(WorldEvent.Unload event) {
+        DIMENSIONS.remove(event.getWorld());
+    }
+
+    @SubscribeEvent
+    public static void serverTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.START)
+            return;
+        boolean require = RHConfig.SERVER.channelsRequireEmitter.get();
+        if (require != requireEmitter) {
+            // Đổi luật tưới kênh => mọi coverage đã tính không còn đúng
+            requireEmitter = require;
+            for (IrrigationGraph graph : DIMENSIONS.values()) {
+                graph.coverage.clear();
+            }
+        }
+        Chunk chunk;
+        while ((chunk = PENDING_LOADS.poll()) != null) {
+            IrrigationGraph graph = graph(chunk.getLevel());
+            if (graph != null) {
+                rebuildChunk(graph, chunk);
+            }
+        }
+    }
+
+    /**
+     * Quét lại nguồn tưới của chunk vừa load; graph chỉ cập nhật phần khác với dữ liệu cũ.
+     */
+    private static void rebuildChunk(IrrigationGraph graph, Chunk chunk) {
+        ChunkPos cp = chunk.getPos();
+        Set<Long> emitters = new HashSet<>();
+        Set<Long> channels = new HashSet<>();
+        Block emitter = ModBlocks.WATER_EMITTER.get();
+        for (ChunkSection section : chunk.getSections()) {
+            if (ChunkSection.isEmpty(section) || !section.maybeHas(IrrigationIndex::isSource)) continue;
+            int baseY = section.bottomBlockY();
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        BlockState state = section.getBlockState(x, y, z);
+                        if (!isSource(state)) continue;
+                        long pos = BlockPos.asLong(cp.getMinBlockX() + x, baseY + y, cp.getMinBlockZ() + z);
+                        (state.getBlock() == emitter ? emitters : channels).add(pos);
+                    }
+                }
+            }
+        }
+        graph.replaceChunk(cp.toLong(), emitters, channels);
+    }
+
+    /** Tổng số nguồn tưới đang được index (mọi dimension). */
+    public static int indexedSources() {
+        int n = 0;
+        for (IrrigationGraph graph : DIMENSIONS.values()) {
+            n += graph.sourceCount();
+        }
+        return n;
+    }
+
+    /** Tổng số mạng kênh tưới (mọi dimension). */
+    public static int networkCount() {
+        int n = 0;
+        for (IrrigationGraph graph : DIMENSIONS.values()) {
+            n += graph.networkCount();
+        }
+        return n;
+    }
+}
@@ -0,0 +1,22 @@
+package com.khanhromvn.realisticharvest.irrigation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * IrrigationNetwork: một thành phần liên thông các IRRIGATION_CHANNEL (kề nhau theo 6 mặt).
+ *
+ * - channels: vị trí (BlockPos.asLong()) các kênh thuộc mạng.
+ * - fed: mạng có ít nhất một kênh kề WATER_EMITTER => toàn bộ kênh cấp bonus tưới.
+ *
+ * Do IrrigationGraph quản lý (merge khi nối, tách bằng flood fill khi đứt).
+ */
+final class IrrigationNetwork {
+
+    final Set<Long> channels = new HashSet<>();
+    boolean fed;
+
+    int size() {
+        return channels.size();
+    }
+}
@@ -0,0 +1,103 @@
+package com.khanhromvn.realisticharvest.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram: histogram thời gian (ns) với bucket lũy thừa 2 (bucket i chứa [2^(i-1), 2^i)).
+ * Ghi không cấp phát, an toàn đa thread (atomic); percentile xấp xỉ bằng cận trên của bucket (sai tối đa 2x).
+ */
+public final class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int BUCKETS = 64;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Ghi thời gian từ start (giá trị của SoilMetrics.start()) tới hiện tại; start = 0 (metrics tắt) => bỏ qua.
+     */
+    public void stop(long start) {
+        if (start != 0L) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0L) nanos = 0L;
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos) & (BUCKETS - 1));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m;
+        while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+            // thử lại
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        total.set(0L);
+        max.set(0L);
+    }
+
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return total.get();
+    }
+
+    @Override
+    public double getMeanNanos() {
+        long n = count.get();
+        return n == 0L ? 0D : total.get() / (double) n;
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return percentile(0.50D);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return percentile(0.99D);
+    }
+
+    /** Cận trên của bucket chứa percentile q (0..1), không vượt quá max. */
+    public long percentile(double q) {
+        long n = count.get();
+        if (n == 0L) return 0L;
+        long rank = (long) Math.ceil(q * n);
+        long seen = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                long upper = i == 0 ? 0L : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1L;
+                return Math.min(upper, max.get());
+            }
+        }
+        return max.get();
+    }
+}
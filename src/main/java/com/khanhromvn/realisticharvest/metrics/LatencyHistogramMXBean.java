@@ -0,0 +1,19 @@
+package com.khanhromvn.realisticharvest.metrics;
+
+/**
+ * Giao diện JMX của LatencyHistogram (ObjectName com.khanhromvn.realisticharvest:type=Timer,name=...).
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    long getTotalNanos();
+
+    double getMeanNanos();
+
+    long getMaxNanos();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+}
@@ -0,0 +1,276 @@
+package com.khanhromvn.realisticharvest.metrics;
+
+import com.khanhromvn.realisticharvest.RealisticHarvest;
+import com.khanhromvn.realisticharvest.config.RHConfig;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.server.FMLServerStartedEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SoilMetrics: bộ đếm + histogram thời gian cho hệ soil / crop, xem qua /rh stats hoặc JMX
+ * (com.khanhromvn.realisticharvest:type=SoilMetrics và type=Timer,name=...).
+ *
+ * Hook ở đường nóng:
+ *   long t = SoilMetrics.start();        // 0 khi metrics tắt
+ *   ...
+ *   SoilMetrics.TICK_SCHEDULED.stop(t);  // bỏ qua khi t = 0
+ *   SoilMetrics.CROP_EVENTS.inc();       // bỏ qua khi tắt
+ * Tắt (RHConfig.SERVER.metricsEnabled = false): mỗi hook chỉ còn một lần đọc cờ, không gọi nanoTime,
+ * không chạm atomic. Cờ đọc lại từ config đầu mỗi server tick.
+ *
+ * Gauge (số chunk / ô) do SoilTickScheduler và CropDenyCache đẩy vào định kỳ trên server thread,
+ * để thread JMX không phải duyệt cấu trúc chỉ dành cho server thread.
+ */
+@Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
+public final class SoilMetrics {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final String DOMAIN = "com.khanhromvn.realisticharvest";
+
+    /** Chu kỳ (tick) cập nhật gauge. */
+    public static final int GAUGE_INTERVAL = 20;
+
+    private static volatile boolean enabled;
+
+    /**
+     * Bộ đếm cộng dồn (LongAdder: rẻ kể cả khi nhiều thread cùng ghi).
+     */
+    public static final class Counter {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public void inc() {
+            if (enabled) value.increment();
+        }
+
+        public void add(long n) {
+            if (enabled) value.add(n);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    // Soil scheduler
+    public static final Counter CHUNK_TICKS = new Counter("chunkTicks");
+    public static final Counter CELLS_TICKED = new Counter("cellsTicked");
+    public static final Counter IRRIGATION_LOOKUPS = new Counter("irrigationLookups");
+    // Vòng đời ô soil
+    public static final Counter CELLS_PRUNED = new Counter("cellsPruned");
+    public static final Counter CELLS_EVICTED = new Counter("cellsEvicted");
+    public static final Counter CELLS_DROPPED = new Counter("cellsDropped");
+    // Crop
+    public static final Counter CROP_EVENTS = new Counter("cropEvents");
+    public static final Counter CROP_DENIED = new Counter("cropEventsDenied");
+    public static final Counter CROP_DENY_CACHE_HITS = new Counter("cropDenyCacheHits");
+    public static final Counter CROP_POST_EVENTS = new Counter("cropPostEvents");
+
+    public static final LatencyHistogram SCHEDULER_TICK = new LatencyHistogram("schedulerTick");
+    public static final LatencyHistogram TICK_SCHEDULED = new LatencyHistogram("tickScheduled");
+    public static final LatencyHistogram CROP_GROW = new LatencyHistogram("onCropGrow");
+    public static final LatencyHistogram CROP_GROW_POST = new LatencyHistogram("onCropGrowPost");
+    public static final LatencyHistogram NBT_SERIALIZE = new LatencyHistogram("serializeNBT");
+    public static final LatencyHistogram NBT_DESERIALIZE = new LatencyHistogram("deserializeNBT");
+
+    private static final List<Counter> COUNTERS = Collections.unmodifiableList(Arrays.asList(
+            CHUNK_TICKS, CELLS_TICKED, IRRIGATION_LOOKUPS, CELLS_PRUNED, CELLS_EVICTED, CELLS_DROPPED,
+            CROP_EVENTS, CROP_DENIED, CROP_DENY_CACHE_HITS, CROP_POST_EVENTS));
+    private static final List<LatencyHistogram> TIMERS = Collections.unmodifiableList(Arrays.asList(
+            SCHEDULER_TICK, TICK_SCHEDULED, CROP_GROW, CROP_GROW_POST, NBT_SERIALIZE, NBT_DESERIALIZE));
+
+    // Gauge (ảnh chụp)
+    private static volatile long chunksLoaded;
+    private static volatile long chunksWithStores;
+    private static volatile long cellsStored;
+    private static volatile long denyCacheEntries;
+
+    private static final List<ObjectName> REGISTERED = new ArrayList<>();
+
+    private SoilMetrics() {}
+
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    /** Mốc thời gian cho LatencyHistogram.stop; 0 khi metrics tắt. */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static List<Counter> counters() {
+        return COUNTERS;
+    }
+
+    public static List<LatencyHistogram> timers() {
+        return TIMERS;
+    }
+
+    /** Gauge store soil (server thread): chunk trong scheduler, chunk có ô, tổng số ô. */
+    public static void sampleStores(long loaded, long withStores, long cells) {
+        chunksLoaded = loaded;
+        chunksWithStores = withStores;
+        cellsStored = cells;
+    }
+
+    public static void sampleDenyCache(long entries) {
+        denyCacheEntries = entries;
+    }
+
+    public static void reset() {
+        for (Counter c : COUNTERS) {
+            c.value.reset();
+        }
+        for (LatencyHistogram h : TIMERS) {
+            h.reset();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.START) {
+            enabled = RHConfig.SERVER.metricsEnabled.get();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStarted(FMLServerStartedEvent event) {
+        enabled = RHConfig.SERVER.metricsEnabled.get();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, new ObjectName(DOMAIN + ":type=SoilMetrics"), new Bean());
+            for (LatencyHistogram h : TIMERS) {
+                register(server, new ObjectName(DOMAIN + ":type=Timer,name=" + h.name()), h);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("[SoilMetrics] Cannot register JMX beans: {}", e.getMessage());
+        }
+    }
+
+    private static void register(MBeanServer server, ObjectName name, Object bean) throws Exception {
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(bean, name);
+        REGISTERED.add(name);
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(FMLServerStoppedEvent event) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : REGISTERED) {
+            try {
+                server.unregisterMBean(name);
+            } catch (Exception e) {
+                LOGGER.debug("[SoilMetrics] Cannot unregister {}: {}", name, e.getMessage());
+            }
+        }
+        REGISTERED.clear();
+        reset();
+        sampleStores(0L, 0L, 0L);
+        sampleDenyCache(0L);
+    }
+
+    private static final class Bean implements SoilMetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public long getChunksLoaded() {
+            return chunksLoaded;
+        }
+
+        @Override
+        public long getChunksWithStores() {
+            return chunksWithStores;
+        }
+
+        @Override
+        public long getCellsStored() {
+            return cellsStored;
+        }
+
+        @Override
+        public long getDenyCacheEntries() {
+            return denyCacheEntries;
+        }
+
+        @Override
+        public long getChunkTicks() {
+            return CHUNK_TICKS.get();
+        }
+
+        @Override
+        public long getCellsTicked() {
+            return CELLS_TICKED.get();
+        }
+
+        @Override
+        public long getIrrigationLookups() {
+            return IRRIGATION_LOOKUPS.get();
+        }
+
+        @Override
+        public long getCellsPruned() {
+            return CELLS_PRUNED.get();
+        }
+
+        @Override
+        public long getCellsEvicted() {
+            return CELLS_EVICTED.get();
+        }
+
+        @Override
+        public long getCellsDropped() {
+            return CELLS_DROPPED.get();
+        }
+
+        @Override
+        public long getCropEvents() {
+            return CROP_EVENTS.get();
+        }
+
+        @Override
+        public long getCropEventsDenied() {
+            return CROP_DENIED.get();
+        }
+
+        @Override
+        public long getCropDenyCacheHits() {
+            return CROP_DENY_CACHE_HITS.get();
+        }
+
+        @Override
+        public long getCropPostEvents() {
+            return CROP_POST_EVENTS.get();
+        }
+
+        @Override
+        public void reset() {
+            SoilMetrics.reset();
+        }
+    }
+}
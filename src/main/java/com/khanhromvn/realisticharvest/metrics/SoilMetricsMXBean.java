@@ -0,0 +1,43 @@
+package com.khanhromvn.realisticharvest.metrics;
+
+/**
+ * Giao diện JMX của SoilMetrics (ObjectName com.khanhromvn.realisticharvest:type=SoilMetrics).
+ * Gauge (chunk / ô) là ảnh chụp lấy trên server thread, cập nhật mỗi SoilMetrics.GAUGE_INTERVAL tick.
+ */
+public interface SoilMetricsMXBean {
+
+    boolean isEnabled();
+
+    long getChunksLoaded();
+
+    long getChunksWithStores();
+
+    long getCellsStored();
+
+    long getDenyCacheEntries();
+
+    long getChunkTicks();
+
+    long getCellsTicked();
+
+    long getIrrigationLookups();
+
+    /** Ô bị xóa vì đã trở về mặc định (pruneIdleCells). */
+    long getCellsPruned();
+
+    /** Ô bị xóa do vượt maxCellsPerChunk (LRU). */
+    long getCellsEvicted();
+
+    /** Ô bị bỏ vì block không còn là đất (phá / đặt / fluid). */
+    long getCellsDropped();
+
+    long getCropEvents();
+
+    long getCropEventsDenied();
+
+    long getCropDenyCacheHits();
+
+    long getCropPostEvents();
+
+    void reset();
+}
@@ -0,0 +1,301 @@
+package com.khanhromvn.realisticharvest.metrics;
+
+import com.khanhromvn.realisticharvest.RealisticHarvest;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.FolderName;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SoilProfiler: profiler theo cửa sổ thời gian cho pipeline soil (/rh profile start|stop|dump).
+ *
+ * Khi đang chạy, mỗi lượt cập nhật chunk của scheduler ghi thời gian theo pha (Phase) vào chunk đó, và
+ * CropGrowthHandler ghi thời gian handler theo vị trí crop. Dữ liệu gom theo dimension -> chunk / vị trí,
+ * đủ để chỉ ra chunk / vị trí đắt nhất. Khi không chạy, mỗi hook chỉ là một lần đọc cờ (start() trả 0).
+ *
+ * Pha KERNEL có thể chạy trên worker thread (parallelSoilTick): store tự giữ thời gian simulate và báo lại
+ * ở publish trên server thread. Mọi hàm ghi / đọc ở đây chỉ gọi trên server thread.
+ */
+@Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
+public final class SoilProfiler {
+
+    public enum Phase {
+        /** Gom đầu vào (phần còn lại của gatherInputs). */
+        GATHER,
+        /** Tra coverage tưới. */
+        IRRIGATION,
+        /** Tra nhiệt độ biome. */
+        BIOME,
+        /** Mô phỏng (SoilKernel / scheduledUpdate). */
+        KERNEL,
+        /** Áp dụng delta crop + publish. */
+        APPLY,
+        /** CropGrowthHandler (Pre + Post). */
+        CROP;
+
+        static final Phase[] VALUES = values();
+
+        String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    public static final int PHASES = Phase.VALUES.length;
+    public static final int DEFAULT_SECONDS = 30;
+
+    private static final class Dimension {
+        final String name;
+        final long[] totals = new long[PHASES];
+        final Map<Long, long[]> chunks = new HashMap<>();
+        final Map<Long, long[]> positions = new HashMap<>(); // {nanos, lần gọi}
+
+        Dimension(String name) {
+            this.name = name;
+        }
+    }
+
+    private static volatile boolean active;
+    private static long startedAt;
+    private static long stoppedAt;
+    private static long deadline;
+    private static final Map<World, Dimension> DIMENSIONS = new HashMap<>();
+
+    private SoilProfiler() {}
+
+    public static boolean active() {
+        return active;
+    }
+
+    /** Mốc thời gian cho record / stopCrop; 0 khi profiler không chạy. */
+    public static long start() {
+        return active ? System.nanoTime() : 0L;
+    }
+
+    /** Bắt đầu cửa sổ mới (xóa dữ liệu cũ), tự dừng sau seconds giây. */
+    public static void begin(int seconds) {
+        DIMENSIONS.clear();
+        startedAt = System.nanoTime();
+        stoppedAt = 0L;
+        deadline = startedAt + seconds * 1_000_000_000L;
+        active = true;
+    }
+
+    /** @return false nếu profiler không chạy */
+    public static boolean end() {
+        if (!active) return false;
+        active = false;
+        stoppedAt = System.nanoTime();
+        return true;
+    }
+
+    /** Độ dài cửa sổ đã ghi (ns). */
+    public static long windowNanos() {
+        if (startedAt == 0L) return 0L;
+        return (active ? System.nanoTime() : stoppedAt) - startedAt;
+    }
+
+    public static boolean hasData() {
+        return !DIMENSIONS.isEmpty();
+    }
+
+    private static Dimension dimension(World world) {
+        Dimension dim = DIMENSIONS.get(world);
+        if (dim == null) {
+            dim = new Dimension(world.dimension().location().toString());
+            DIMENSIONS.put(world, dim);
+        }
+        return dim;
+    }
+
+    /** Cộng nanos vào pha của chunk (chunkKey = ChunkPos.toLong()). */
+    public static void record(World world, long chunkKey, Phase phase, long nanos) {
+        if (!active) return;
+        Dimension dim = dimension(world);
+        dim.totals[phase.ordinal()] += nanos;
+        dim.chunks.computeIfAbsent(chunkKey, k -> new long[PHASES])[phase.ordinal()] += nanos;
+    }
+
+    /** Như record cho mọi pha một lần; phases theo thứ tự Phase (ns). */
+    public static void record(World world, long chunkKey, long[] phases) {
+        if (!active) return;
+        Dimension dim = dimension(world);
+        long[] chunk = dim.chunks.computeIfAbsent(chunkKey, k -> new long[PHASES]);
+        for (int i = 0; i < PHASES; i++) {
+            dim.totals[i] += phases[i];
+            chunk[i] += phases[i];
+        }
+    }
+
+    /** Ghi thời gian từ start (giá trị của start()) vào pha của chunk; start = 0 => bỏ qua. */
+    public static void stop(World world, long chunkKey, Phase phase, long start) {
+        if (start != 0L) {
+            record(world, chunkKey, phase, System.nanoTime() - start);
+        }
+    }
+
+    /** Ghi thời gian một lần chạy CropGrowthHandler tại pos (start = giá trị của start()). */
+    public static void stopCrop(IWorld world, BlockPos pos, long start) {
+        if (start == 0L || !active || !(world instanceof World)) return;
+        long nanos = System.nanoTime() - start;
+        record((World) world, ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4), Phase.CROP, nanos);
+        long[] p = dimension((World) world).positions.computeIfAbsent(pos.asLong(), k -> new long[2]);
+        p[0] += nanos;
+        p[1]++;
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END && active && System.nanoTime() - deadline >= 0L) {
+            end();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(FMLServerStoppedEvent event) {
+        active = false;
+        startedAt = 0L;
+        DIMENSIONS.clear();
+    }
+
+    private static long total(long[] phases) {
+        long sum = 0L;
+        for (long n : phases) {
+            sum += n;
+        }
+        return sum;
+    }
+
+    private static final class Row {
+        final Dimension dim;
+        final long key;
+        final long[] values;
+        final long sortKey;
+
+        Row(Dimension dim, long key, long[] values, long sortKey) {
+            this.dim = dim;
+            this.key = key;
+            this.values = values;
+            this.sortKey = sortKey;
+        }
+    }
+
+    private static List<Row> chunkRows() {
+        List<Row> rows = new ArrayList<>();
+        for (Dimension dim : DIMENSIONS.values()) {
+            for (Map.Entry<Long, long[]> e : dim.chunks.entrySet()) {
+                rows.add(new Row(dim, e.getKey(), e.getValue(), total(e.getValue())));
+            }
+        }
+        rows.sort((a, b) -> Long.compare(b.sortKey, a.sortKey));
+        return rows;
+    }
+
+    private static List<Row> positionRows() {
+        List<Row> rows = new ArrayList<>();
+        for (Dimension dim : DIMENSIONS.values()) {
+            for (Map.Entry<Long, long[]> e : dim.positions.entrySet()) {
+                rows.add(new Row(dim, e.getKey(), e.getValue(), e.getValue()[0]));
+            }
+        }
+        rows.sort((a, b) -> Long.compare(b.sortKey, a.sortKey));
+        return rows;
+    }
+
+    private static String phaseSummary(long[] phases) {
+        StringBuilder sb = new StringBuilder();
+        for (Phase phase : Phase.VALUES) {
+            if (phases[phase.ordinal()] == 0L) continue;
+            sb.append(String.format("%s=%.2fms ", phase.label(), phases[phase.ordinal()] / 1_000_000D));
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Tóm tắt cho chat: tổng theo dimension, topN chunk và topN vị trí crop đắt nhất.
+     */
+    public static List<String> summary(int topN) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("[Soil profile] %s window=%.1fs dimensions=%d",
+                active ? "running" : "stopped", windowNanos() / 1_000_000_000D, DIMENSIONS.size()));
+        for (Dimension dim : DIMENSIONS.values()) {
+            lines.add(String.format("%s: total=%.2fms %s", dim.name, total(dim.totals) / 1_000_000D, phaseSummary(dim.totals)));
+        }
+        List<Row> chunks = chunkRows();
+        for (int i = 0; i < Math.min(topN, chunks.size()); i++) {
+            Row r = chunks.get(i);
+            lines.add(String.format("#%d chunk %s [%d, %d] total=%.2fms %s", i + 1, r.dim.name,
+                    ChunkPos.getX(r.key), ChunkPos.getZ(r.key), r.sortKey / 1_000_000D, phaseSummary(r.values)));
+        }
+        List<Row> positions = positionRows();
+        for (int i = 0; i < Math.min(topN, positions.size()); i++) {
+            Row r = positions.get(i);
+            lines.add(String.format("#%d crop %s %d %d %d total=%.3fms calls=%d", i + 1, r.dim.name,
+                    BlockPos.getX(r.key), BlockPos.getY(r.key), BlockPos.getZ(r.key), r.sortKey / 1_000_000D, r.values[1]));
+        }
+        return lines;
+    }
+
+    /**
+     * Ghi report phẳng (TSV, đơn vị ns) vào thư mục world: mọi dimension, mọi chunk, mọi vị trí crop,
+     * mỗi loại sắp theo tổng thời gian giảm dần.
+     */
+    public static Path writeReport(MinecraftServer server) throws IOException {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        Path file = server.getWorldPath(FolderName.ROOT).resolve("realisticharvest-profile-" + stamp + ".tsv");
+        StringBuilder header = new StringBuilder();
+        for (Phase phase : Phase.VALUES) {
+            header.append('\t').append(phase.label());
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# realisticharvest soil profile, window_ns=" + windowNanos());
+            out.newLine();
+            out.write("type\tdimension" + header + "\ttotal");
+            out.newLine();
+            for (Dimension dim : DIMENSIONS.values()) {
+                out.write("dimension\t" + dim.name + joinPhases(dim.totals) + '\t' + total(dim.totals));
+                out.newLine();
+            }
+            out.write("type\tdimension\tchunk_x\tchunk_z" + header + "\ttotal");
+            out.newLine();
+            for (Row r : chunkRows()) {
+                out.write("chunk\t" + r.dim.name + '\t' + ChunkPos.getX(r.key) + '\t' + ChunkPos.getZ(r.key)
+                        + joinPhases(r.values) + '\t' + r.sortKey);
+                out.newLine();
+            }
+            out.write("type\tdimension\tx\ty\tz\tcrop\tcalls");
+            out.newLine();
+            for (Row r : positionRows()) {
+                out.write("position\t" + r.dim.name + '\t' + BlockPos.getX(r.key) + '\t' + BlockPos.getY(r.key) + '\t'
+                        + BlockPos.getZ(r.key) + '\t' + r.values[0] + '\t' + r.values[1]);
+                out.newLine();
+            }
+        }
+        return file;
+    }
+
+    private static String joinPhases(long[] phases) {
+        StringBuilder sb = new StringBuilder();
+        for (long n : phases) {
+            sb.append('\t').append(n);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.Arrays;
+
+/**
+ * BiomeTemperatureCache: nhiệt độ chuẩn hóa (0..1) theo cột (x, z) và dải độ cao y của một chunk.
+ *
+ * - Dải y cao 8 block (BAND_SHIFT); mỗi dải là float[256] (z, x), cấp phát khi dải được dùng lần đầu.
+ * - Ô chưa tính = NaN, tính lười qua BiomeTemperatureTable.sample tại giữa dải.
+ *   Trên y 64 nhiệt độ giảm ~0.0017 / block => sai số lấy mẫu giữa dải < 0.003 sau chuẩn hóa.
+ * - Không lưu NBT; bị xóa khi chunk unload.
+ */
+public final class BiomeTemperatureCache {
+
+    static final int BAND_SHIFT = 3;
+    static final int BAND_COUNT = 256 >> BAND_SHIFT;
+
+    private final float[][] bands = new float[BAND_COUNT][];
+    private final BlockPos.Mutable probe = new BlockPos.Mutable();
+
+    public float get(World world, int x, int y, int z) {
+        if (y < 0) y = 0;
+        if (y > 255) y = 255;
+        int band = y >> BAND_SHIFT;
+        float[] values = bands[band];
+        if (values == null) {
+            values = bands[band] = new float[256];
+            Arrays.fill(values, Float.NaN);
+        }
+        int i = (z & 15) << 4 | (x & 15);
+        float t = values[i];
+        if (Float.isNaN(t)) {
+            probe.set(x, (band << BAND_SHIFT) + (1 << (BAND_SHIFT - 1)), z);
+            t = values[i] = BiomeTemperatureTable.sample(world, probe);
+        }
+        return t;
+    }
+
+    public void clear() {
+        Arrays.fill(bands, null);
+    }
+}
@@ -0,0 +1,98 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import com.khanhromvn.realisticharvest.RealisticHarvest;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.world.World;
+import net.minecraft.world.biome.Biome;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.server.FMLServerStartedEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+
+import java.util.Arrays;
+
+/**
+ * BiomeTemperatureTable: nhiệt độ chuẩn hóa 0..1 của từng Biome (theo id trong biome registry động),
+ * dựng một lần khi server start.
+ *
+ * - Chuẩn hóa: (temp + 0.5) / 2.5, clamp 0..1 (vanilla 1.16 temp ~ -0.5..2.0).
+ * - Tại y <= 64 nhiệt độ vanilla không phụ thuộc độ cao => đọc thẳng từ bảng.
+ * - Biome có temperature modifier (vd frozen ocean: nhiệt độ đổi theo noise x/z) được đánh dấu NaN
+ *   khi dựng bảng (lấy mẫu nhiều vị trí) và luôn tính qua Biome.getTemperature.
+ */
+@Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
+public final class BiomeTemperatureTable {
+
+    /** Độ cao tối đa mà nhiệt độ biome chưa bị giảm theo độ cao. */
+    static final int HEIGHT_INDEPENDENT_MAX_Y = 64;
+
+    private static final int PROBES = 64;
+
+    private static Registry<Biome> registry;
+    private static float[] normalized = new float[0];
+
+    private BiomeTemperatureTable() {}
+
+    public static float normalize(float biomeTemp) {
+        float t = (biomeTemp + 0.5f) / 2.5f;
+        if (t < 0f)
+            return 0f;
+        if (t > 1f)
+            return 1f;
+        return t;
+    }
+
+    @SubscribeEvent
+    public static void onServerStarted(FMLServerStartedEvent event) {
+        build(event.getServer().registryAccess().registryOrThrow(Registry.BIOME_REGISTRY));
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(FMLServerStoppedEvent event) {
+        registry = null;
+        normalized = new float[0];
+    }
+
+    static void build(Registry<Biome> biomes) {
+        int maxId = -1;
+        for (Biome biome : biomes) {
+            maxId = Math.max(maxId, biomes.getId(biome));
+        }
+        float[] table = new float[maxId + 1];
+        Arrays.fill(table, Float.NaN);
+        BlockPos.Mutable probe = new BlockPos.Mutable();
+        for (Biome biome : biomes) {
+            int id = biomes.getId(biome);
+            if (id < 0) continue;
+            float base = biome.getBaseTemperature();
+            boolean constant = true;
+            for (int i = 0; i < PROBES && constant; i++) {
+                // Trải đều vị trí mẫu để bắt modifier dựa trên noise x/z
+                probe.set(i * 1237 - 40000, HEIGHT_INDEPENDENT_MAX_Y, i * 7919 - 250000);
+                constant = biome.getTemperature(probe) == base;
+            }
+            if (constant) {
+                table[id] = normalize(base);
+            }
+        }
+        registry = biomes;
+        normalized = table;
+    }
+
+    /**
+     * Nhiệt độ chuẩn hóa tại pos: y <= 64 và biome không có modifier => đọc bảng, ngược lại tính trực tiếp.
+     */
+    static float sample(World world, BlockPos pos) {
+        Biome biome = world.getBiome(pos);
+        Registry<Biome> biomes = registry;
+        if (biomes != null && pos.getY() <= HEIGHT_INDEPENDENT_MAX_Y) {
+            int id = biomes.getId(biome);
+            float[] table = normalized;
+            if (id >= 0 && id < table.length && !Float.isNaN(table[id])) {
+                return table[id];
+            }
+        }
+        return normalize(biome.getTemperature(pos));
+    }
+}
@@ -1,139 +1,901 @@
 package com.khanhromvn.realisticharvest.soil;
 
 import com.khanhromvn.realisticharvest.RealisticHarvest;
+import com.khanhromvn.realisticharvest.config.RHConfig;
+import com.khanhromvn.realisticharvest.irrigation.IrrigationIndex;
+import com.khanhromvn.realisticharvest.metrics.SoilMetrics;
+import com.khanhromvn.realisticharvest.metrics.SoilProfiler;
+import com.khanhromvn.realisticharvest.init.ModBlocks;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.FarmlandBlock;
 import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.ListNBT;
 import net.minecraft.util.Direction;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.IWorld;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.server.ServerWorld;
-import com.khanhromvn.realisticharvest.init.ModBlocks;
 import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.capabilities.CapabilityInject;
 import net.minecraftforge.common.capabilities.ICapabilityProvider;
+import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.common.util.INBTSerializable;
 import net.minecraftforge.common.util.LazyOptional;
 import net.minecraftforge.event.AttachCapabilitiesEvent;
-import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.eventbus.api.EventPriority;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * SoilCapability quản lý SoilData ở cấp độ CHUNK để giảm số lượng capability
  * per-block.
- * Lưu map<BlockPos, SoilData> cho các vị trí đất được truy cập / thay đổi.
+ * Lưu các vị trí đất được truy cập / thay đổi: map sparse (key long) cho chunk ít ô,
+ * grid SoilSection (struct-of-arrays + occupancy bitmap) cho section dày đặc.
  *
  * Thiết kế:
- * - Khi người chơi tương tác (bón phân / đo) mới khởi tạo SoilData tại pos.
- * - Scheduler tick sẽ duyệt các entry đã khởi tạo.
- * - Tối ưu sau: giới hạn số vị trí / aging để xóa entry cũ.
+ * - Chỉ thao tác thay đổi đất (bón phân, cuốc) mới khởi tạo SoilData tại pos (getOrCreate);
+ *   truy vấn chỉ đọc (đo, /rh soilinfo) dùng getIfExists, trả SoilData.DEFAULT nếu chưa có, không tạo entry.
+ * - SoilTickScheduler duyệt các entry đã khởi tạo (round-robin theo chunk, có ngân sách thời gian).
+ * - Vòng đời ô: ô bị bỏ khi block tại đó không còn là đất (BlockEvent phá / đặt / fluid, xem isSoilBlock);
+ *   mỗi PRUNE_EVERY interval scheduler xóa ô không có lịch sử đã trở về gần mặc định
+ *   (RHConfig.SERVER.pruneIdleCells); RHConfig.SERVER.maxCellsPerChunk > 0 giới hạn số ô mỗi chunk,
+ *   tạo ô mới khi đầy => xóa theo lô ~10% ô LRU.
  * - Biome temperature + raining ảnh hưởng moisture; irrigation blocks cấp bonus
- * ẩm.
+ * ẩm (tra từ IrrigationIndex, không quét block).
  */
 @Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
 public final class SoilCapability {
 
+    private static final Logger LOGGER = LogManager.getLogger();
+
     public static final ResourceLocation KEY = new ResourceLocation(RealisticHarvest.MOD_ID, "soil_chunk");
     @CapabilityInject(ChunkSoilStore.class)
     public static Capability<ChunkSoilStore> CHUNK_SOIL_CAP = null;
 
+    // Dùng lại cho peek (chỉ server thread)
+    private static final SoilData PEEK_CURSOR = SoilData.cursor();
+    private static final SoilData PEEK_DETACHED = new SoilData();
+
     /**
-     * Store capability: map các vị trí -> SoilData
+     * Store capability: hai layout theo từng chunk section.
+     * - Sparse (mặc định): SparseSoilMap chung cho cả chunk, key = BlockPos.asLong().
+     * - Dense: SoilSection (grid 4096 ô struct-of-arrays) khi số ô của section vượt
+     *   RHConfig.SERVER.denseSectionThreshold; các entry sparse của section được dời sang grid.
+     * getOrCreate/get/has trả view SoilData mỏng; layoutStamp tăng mỗi khi ô bị dời chỗ.
+     *
+     * LRU (maxCellsPerChunk): mỗi ô giữ mốc truy cập gần nhất (SoilColumns.lastAccess, theo accessClock của store),
+     * cập nhật ở getOrCreate / get / peek; lượt scheduler không tính là truy cập. Chỉ runtime: sau khi load
+     * mọi ô cùng mốc 0.
+     *
+     * Dirty tracking: SoilData mutator gọi markDirty(sectionY) -> bit dirtySections + Chunk.setUnsaved
+     * (chỉ lần đầu sau mỗi lần lưu). Khi lưu, section sạch dùng lại CompoundNBT đã encode trước đó
+     * (kể cả tag đọc lúc load) thay vì encode lại.
      */
     public static class ChunkSoilStore implements INBTSerializable<CompoundNBT> {
-        private final Map<BlockPos, SoilData> soilMap = new HashMap<>();
+        /** 1.16: build height 0..255 => 16 section. */
+        public static final int SECTION_COUNT = 16;
+        /** Dọn ô idle mỗi bấy nhiêu interval scheduler (ô về mặc định chậm, không cần quét mỗi lượt). */
+        static final int PRUNE_EVERY = 10;
+
+        private final SoilSection[] sections = new SoilSection[SECTION_COUNT];
+        private SparseSoilMap sparse;
+        private final int[] sparseCounts = new int[SECTION_COUNT];
+        private int layoutStamp;
+        private int accessClock;
+        // accessClock tại lần xét phai lịch sử cuốc gần nhất: ô có lastAccess > mốc này đã được dùng trong chu kỳ
+        private int fadeMark;
+        private final int baseX;
+        private final int baseZ;
+
+        // Dirty tracking & cache encode theo section
+        private final Chunk owner;
+        private final CompoundNBT[] encoded = new CompoundNBT[SECTION_COUNT];
+        private int dirtySections;
+        private boolean dirty;
+        // Tăng mỗi khi section có ô thay đổi (markDirty), không lưu NBT; dùng để kiểm tra cache còn đúng
+        private final int[] sectionVersions = new int[SECTION_COUNT];
+
+        // Số interval đã mô phỏng kể từ lần dọn ô idle gần nhất (không lưu NBT)
+        private int pruneIntervals;
+
+        // Game time của lần mô phỏng gần nhất (-1 = chưa biết) và giá trị đã ghi ở lần lưu gần nhất
+        private long lastSimulated = -1L;
+        private long savedSimulated = -1L;
+
+        // Buffer đầu vào tick (gom ở main thread, đọc ở pha simulate), tái sử dụng giữa các lần tick
+        private float[] inputTemperature = new float[0];
+        private float[] inputIrrigation = new float[0];
+        private float[] inputWeight = new float[0];
+        private float[] inputChange = new float[0];
+        private final int[] inputOffset = new int[SECTION_COUNT + 1];
+        private boolean inputReady;
+        private boolean inputRaining;
+        private int inputSteps = 1;
+        private long inputGameTime;
+        private boolean simulating;
+
+        // SoilProfiler: world của lượt cập nhật đang được đo (null = không đo) và thời gian theo pha
+        private World profileWorld;
+        private final long[] profileNanos = new long[SoilProfiler.PHASES];
+
+        // Delta chờ ghi từ CropGrowthHandler (tạo lười, áp dụng ở lượt scheduler / trước khi đọc, lưu)
+        private SoilDeltaBuffer deltas;
+
+        // Cache nhiệt độ biome (không lưu NBT)
+        private final BiomeTemperatureCache temperatures = new BiomeTemperatureCache();
+
+        public ChunkSoilStore() {
+            this(new ChunkPos(0, 0));
+        }
+
+        public ChunkSoilStore(ChunkPos chunkPos) {
+            this(chunkPos, null);
+        }
+
+        public ChunkSoilStore(ChunkPos chunkPos, Chunk owner) {
+            this.baseX = chunkPos.getMinBlockX();
+            this.baseZ = chunkPos.getMinBlockZ();
+            this.owner = owner;
+        }
+
+        private static boolean inBounds(BlockPos pos) {
+            return pos.getY() >= 0 && pos.getY() < SECTION_COUNT << 4;
+        }
+
+        /** Xóa cache runtime (nhiệt độ biome) khi chunk unload. */
+        public void clearCaches() {
+            temperatures.clear();
+        }
+
+        int layoutStamp() {
+            return layoutStamp;
+        }
+
+        /**
+         * Đánh dấu section sy đã thay đổi; báo chunk cần lưu ở lần đầu tiên kể từ lần lưu trước.
+         */
+        void markDirty(int sy) {
+            dirtySections |= 1 << sy;
+            sectionVersions[sy]++;
+            if (!simulating) {
+                notifyOwner();
+            }
+        }
+
+        private void notifyOwner() {
+            if (!dirty) {
+                dirty = true;
+                if (owner != null) {
+                    owner.setUnsaved(true);
+                }
+            }
+        }
+
+        public boolean isDirty() {
+            return dirty;
+        }
+
+        /**
+         * Version của section chứa y: đổi mỗi khi có ô trong section thay đổi giá trị
+         * (kể cả do scheduler hay áp dụng delta). Chỉ có nghĩa trong phiên chạy hiện tại.
+         */
+        public int sectionVersion(int y) {
+            return y < 0 || y >= SECTION_COUNT << 4 ? 0 : sectionVersions[y >> 4];
+        }
+
+        /**
+         * Cộng stress cho ô (x, y, z) qua delta buffer (như SoilData.queueStress), bỏ qua nếu ô không tồn tại.
+         */
+        public void queueStress(int x, int y, int z, float amount) {
+            SoilData cursor = SoilData.cursor();
+            if (bindExisting(cursor, x, y, z)) {
+                cursor.deferTo(BlockPos.asLong(x, y, z)).queueStress(amount);
+            }
+        }
+
+        SoilDeltaBuffer deltas() {
+            return deltas;
+        }
+
+        SoilDeltaBuffer deltaBuffer() {
+            if (deltas == null) {
+                deltas = new SoilDeltaBuffer();
+            }
+            return deltas;
+        }
+
+        /**
+         * Ghi cả lô delta đang chờ vào ô (ô đã bị xóa thì bỏ delta của nó).
+         */
+        public void applyDeltas() {
+            if (deltas == null || deltas.isEmpty()) return;
+            SoilData cursor = SoilData.cursor();
+            for (int slot = 0; slot < deltas.capacity(); slot++) {
+                long k = deltas.keyAt(slot);
+                if (k == SparseSoilMap.EMPTY) continue;
+                if (bindExisting(cursor, BlockPos.getX(k), BlockPos.getY(k), BlockPos.getZ(k))) {
+                    cursor.applyDelta(deltas.fertility[slot], deltas.organic[slot], deltas.stress[slot]);
+                }
+            }
+            deltas.clear();
+        }
 
         public SoilData getOrCreate(BlockPos pos) {
-            return soilMap.computeIfAbsent(pos, p -> new SoilData());
+            applyDeltas();
+            if (!inBounds(pos)) {
+                // Ngoài build height: trả dữ liệu tạm, không lưu
+                return new SoilData();
+            }
+            if (!has(pos)) {
+                evictForInsert();
+            }
+            SoilData data = new SoilData(this, pos.asLong());
+            touch(data.columns(), data.index());
+            return data;
         }
 
         public SoilData get(BlockPos pos) {
-            return soilMap.get(pos);
+            applyDeltas();
+            if (!has(pos)) return null;
+            SoilData data = new SoilData(this, pos.asLong());
+            touch(data.columns(), data.index());
+            return data;
+        }
+
+        /**
+         * Ghi mốc truy cập của ô (LRU). Đồng hồ tràn (rất hiếm) => mọi ô về cùng mốc, thứ tự LRU bắt đầu lại.
+         */
+        private void touch(SoilColumns cols, int idx) {
+            if (accessClock == Integer.MAX_VALUE) {
+                forEachCell((c, i, x, y, z) -> c.lastAccess[i] = 0);
+                accessClock = 0;
+                fadeMark = 0;
+            }
+            cols.lastAccess[idx] = ++accessClock;
+        }
+
+        /**
+         * Giới hạn maxCellsPerChunk: khi tạo ô mới mà store đã đầy, xóa theo lô các ô có mốc truy cập cũ nhất
+         * cho tới còn cap - max(1, cap / 10) ô (kể cả khi giới hạn vừa bị hạ xuống dưới số ô đang có).
+         * Một lần quét + sắp xếp O(n log n) giải phóng chỗ cho ~10% lần tạo tiếp theo => chi phí khấu hao
+         * mỗi lần tạo ô ở trạng thái đầy là O(log n), thay vì quét toàn store mỗi lần.
+         */
+        private void evictForInsert() {
+            int cap = RHConfig.SERVER.maxCellsPerChunk.get();
+            if (cap <= 0) return;
+            int size = size();
+            if (size < cap) return;
+            int excess = size - (cap - Math.max(1, cap / 10));
+            long[] keys = new long[size];
+            // (lastAccess << 32) | thứ tự duyệt: sắp xếp tăng dần = cũ nhất trước
+            long[] order = new long[size];
+            int[] n = {0};
+            forEachCell((cols, idx, x, y, z) -> {
+                keys[n[0]] = BlockPos.asLong(x, y, z);
+                order[n[0]] = (long) cols.lastAccess[idx] << 32 | n[0];
+                n[0]++;
+            });
+            Arrays.sort(order);
+            for (int i = 0; i < excess; i++) {
+                long k = keys[(int) order[i]];
+                remove(BlockPos.getX(k), BlockPos.getY(k), BlockPos.getZ(k));
+            }
+            SoilMetrics.CELLS_EVICTED.add(excess);
         }
 
         public boolean has(BlockPos pos) {
-            return soilMap.containsKey(pos);
+            if (!inBounds(pos)) return false;
+            SoilSection section = sections[pos.getY() >> 4];
+            if (section != null) {
+                return section.isOccupied(SoilSection.index(pos.getX(), pos.getY(), pos.getZ()));
+            }
+            return sparse != null && sparse.find(pos.asLong()) >= 0;
+        }
+
+        /**
+         * Gắn cursor vào ô (x, y, z) nếu ô đã tồn tại (không tạo, không cấp phát).
+         * @return false nếu chưa có ô
+         */
+        boolean bindExisting(SoilData cursor, int x, int y, int z) {
+            if (y < 0 || y >= SECTION_COUNT << 4) return false;
+            int sy = y >> 4;
+            SoilSection section = sections[sy];
+            if (section != null) {
+                int idx = SoilSection.index(x, y, z);
+                if (!section.isOccupied(idx)) return false;
+                cursor.bind(this, sy, section.columns(), idx);
+                return true;
+            }
+            if (sparse == null) return false;
+            int slot = sparse.find(BlockPos.asLong(x, y, z));
+            if (slot < 0) return false;
+            cursor.bind(this, sy, sparse.columns(), slot);
+            return true;
+        }
+
+        /**
+         * Resolve (tạo nếu thiếu) ô key và gắn view vào vị trí hiện tại của nó.
+         */
+        void bind(SoilData view, long key) {
+            int x = BlockPos.getX(key);
+            int y = BlockPos.getY(key);
+            int z = BlockPos.getZ(key);
+            int sy = y >> 4;
+            SoilSection section = sections[sy];
+            if (section == null) {
+                if (sparse != null) {
+                    int slot = sparse.find(key);
+                    if (slot >= 0) {
+                        view.rebind(sparse.columns(), slot, layoutStamp);
+                        return;
+                    }
+                }
+                if (sparseCounts[sy] + 1 > RHConfig.SERVER.denseSectionThreshold.get()) {
+                    section = promote(sy);
+                } else {
+                    if (sparse == null) {
+                        sparse = new SparseSoilMap(RHConfig.SERVER.compactSoilStorage.get());
+                    }
+                    int before = sparse.capacity();
+                    int slot = sparse.findOrInsert(key);
+                    sparseCounts[sy]++;
+                    if (sparse.capacity() != before) {
+                        layoutStamp++; // rehash dời slot
+                    }
+                    view.rebind(sparse.columns(), slot, layoutStamp);
+                    return;
+                }
+            }
+            int idx = SoilSection.index(x, y, z);
+            section.occupy(idx);
+            view.rebind(section.columns(), idx, layoutStamp);
+        }
+
+        /**
+         * Chuyển toàn bộ entry sparse của section sy sang grid dense.
+         */
+        private SoilSection promote(int sy) {
+            SoilSection section = sections[sy] = new SoilSection(RHConfig.SERVER.compactSoilStorage.get());
+            if (sparse != null && sparseCounts[sy] > 0) {
+                long[] moved = new long[sparseCounts[sy]];
+                int n = 0;
+                SoilColumns cols = sparse.columns();
+                for (int slot = 0; slot < sparse.capacity(); slot++) {
+                    long k = sparse.keyAt(slot);
+                    if (k == SparseSoilMap.EMPTY || BlockPos.getY(k) >> 4 != sy) continue;
+                    int idx = SoilSection.index(BlockPos.getX(k), BlockPos.getY(k), BlockPos.getZ(k));
+                    section.occupy(idx);
+                    cols.copyTo(slot, section.columns(), idx);
+                    moved[n++] = k;
+                }
+                for (int i = 0; i < n; i++) {
+                    sparse.remove(moved[i]);
+                }
+            }
+            sparseCounts[sy] = 0;
+            layoutStamp++;
+            return section;
+        }
+
+        /**
+         * Xóa ô (x, y, z) nếu có; delta chờ ghi của ô bị bỏ khi áp dụng. Section dense không còn ô được bỏ.
+         * View đang giữ ô này sẽ tạo lại ô (mặc định) nếu còn được dùng. Không gọi trong lúc duyệt.
+         * @return true nếu ô tồn tại
+         */
+        public boolean remove(int x, int y, int z) {
+            if (y < 0 || y >= SECTION_COUNT << 4) return false;
+            int sy = y >> 4;
+            SoilSection section = sections[sy];
+            if (section != null) {
+                if (!section.vacate(SoilSection.index(x, y, z))) return false;
+                if (section.isEmpty()) {
+                    sections[sy] = null;
+                }
+            } else {
+                if (sparse == null || !sparse.remove(BlockPos.asLong(x, y, z))) return false;
+                sparseCounts[sy]--;
+            }
+            layoutStamp++;
+            markDirty(sy);
+            return true;
+        }
+
+        /**
+         * Xóa mọi ô còn trùng trạng thái mặc định (SoilColumns.isDefault), vd. ô do công cụ đo tạo ra trước đây.
+         * @return số ô đã xóa
+         */
+        public int removeDefaultCells() {
+            applyDeltas();
+            return removeCells(SoilColumns::isDefault);
+        }
+
+        /**
+         * Xóa ô không có phân bón / stress / lịch sử cuốc và mọi attribute lệch mặc định <= tolerance
+         * (SoilColumns.isIdle). Gọi ở đầu lượt scheduler (gatherInputs) mỗi PRUNE_EVERY interval,
+         * sau khi đã áp dụng delta.
+         * @return số ô đã xóa
+         */
+        public int pruneIdleCells(float tolerance) {
+            return removeCells((cols, idx) -> cols.isIdle(idx, tolerance));
+        }
+
+        private interface CellFilter {
+            boolean test(SoilColumns columns, int index);
+        }
+
+        private int removeCells(CellFilter filter) {
+            long[][] keys = {null}; // cấp phát khi có ô đầu tiên cần xóa
+            int[] n = {0};
+            forEachCell((cols, idx, x, y, z) -> {
+                if (filter.test(cols, idx)) {
+                    if (keys[0] == null) keys[0] = new long[size()];
+                    keys[0][n[0]++] = BlockPos.asLong(x, y, z);
+                }
+            });
+            for (int i = 0; i < n[0]; i++) {
+                long k = keys[0][i];
+                remove(BlockPos.getX(k), BlockPos.getY(k), BlockPos.getZ(k));
+            }
+            return n[0];
+        }
+
+        public int size() {
+            int n = sparse != null ? sparse.size() : 0;
+            for (SoilSection section : sections) {
+                if (section != null) n += section.size();
+            }
+            return n;
+        }
+
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        /**
+         * Callback duyệt ô: (columns, index, world x/y/z).
+         */
+        public interface CellVisitor {
+            void visit(SoilColumns columns, int index, int x, int y, int z);
+        }
+
+        /**
+         * Duyệt mọi ô đã khởi tạo (dense trước, sparse sau). Không được thêm ô trong lúc duyệt.
+         */
+        public void forEachCell(CellVisitor visitor) {
+            for (int sy = 0; sy < SECTION_COUNT; sy++) {
+                SoilSection section = sections[sy];
+                if (section == null || section.isEmpty()) continue;
+                for (int idx = section.nextOccupied(0); idx >= 0; idx = section.nextOccupied(idx + 1)) {
+                    visitor.visit(section.columns(), idx, baseX + SoilSection.localX(idx),
+                            (sy << 4) + SoilSection.localY(idx), baseZ + SoilSection.localZ(idx));
+                }
+            }
+            if (sparse != null && !sparse.isEmpty()) {
+                for (int slot = 0; slot < sparse.capacity(); slot++) {
+                    long k = sparse.keyAt(slot);
+                    if (k == SparseSoilMap.EMPTY) continue;
+                    visitor.visit(sparse.columns(), slot, BlockPos.getX(k), BlockPos.getY(k), BlockPos.getZ(k));
+                }
+            }
         }
 
+        /**
+         * Cập nhật mọi ô một lần (serial): gatherInputs -> simulate -> publish trên cùng thread.
+         */
         public void tickScheduled(World world) {
-            boolean raining = world.isRaining();
-            for (Map.Entry<BlockPos, SoilData> e : soilMap.entrySet()) {
-                BlockPos pos = e.getKey();
-
-                // Biome temperature -> normalized (approx): vanilla temp ~ -0.5..2.0 (1.16)
-                float biomeTemp = world.getBiome(pos).getTemperature(pos);
-                // Clamp & normalize to 0..1 (assume range -0.5 .. 2.0)
-                float tempNorm = (biomeTemp + 0.5f) / 2.5f;
-                if (tempNorm < 0f)
-                    tempNorm = 0f;
-                if (tempNorm > 1f)
-                    tempNorm = 1f;
-
-                // Simple irrigation scan:
-                // - WATER_EMITTER within radius 4 -> bonus 0.004
-                // - IRRIGATION_CHANNEL within radius 3 -> bonus 0.002
-                // Priority: emitter overrides channel.
-                float irrigationBonus = 0f;
-                final int emitterRadius = 4;
-                boolean foundEmitter = false;
-                BlockPos.Mutable mutable = new BlockPos.Mutable();
-                for (int dx = -emitterRadius; dx <= emitterRadius && !foundEmitter; dx++) {
-                    for (int dz = -emitterRadius; dz <= emitterRadius && !foundEmitter; dz++) {
-                        mutable.set(pos.getX() + dx, pos.getY(), pos.getZ() + dz);
-                        if (world.getBlockState(mutable).getBlock() == ModBlocks.WATER_EMITTER.get()) {
-                            irrigationBonus = 0.004f;
-                            foundEmitter = true;
-                        }
+            tickScheduled(world, 1);
+        }
+
+        /** Như tickScheduled(World) nhưng gộp steps interval vào một lần cập nhật (tier LOD thưa). */
+        public void tickScheduled(World world, int steps) {
+            long t = SoilMetrics.start();
+            gatherInputs(world, steps);
+            simulate();
+            publish();
+            SoilMetrics.TICK_SCHEDULED.stop(t);
+        }
+
+        /**
+         * Pha 1 (main thread): đọc world (nhiệt độ biome, mưa, coverage tưới) vào buffer đầu vào.
+         * Layout buffer theo slot của từng SoilColumns: mỗi dense section một khối 4096, bảng sparse một khối
+         * capacity() (slot trống có weight 0). Layout store không được đổi cho tới khi simulate xong.
+         */
+        public void gatherInputs(World world) {
+            gatherInputs(world, 1);
+        }
+
+        /**
+         * @param steps số interval gộp vào lần cập nhật này (>1: delta thời gian nhân tương ứng,
+         *              xem SoilData.scheduledUpdate(float, boolean, float, int))
+         */
+        public void gatherInputs(World world, int steps) {
+            long start = SoilProfiler.start();
+            applyDeltas();
+            long applied = start != 0L ? System.nanoTime() : 0L;
+            prepareInputs(world.isRaining(), steps, world.getGameTime());
+            if (start != 0L) {
+                gatherProfiled(world, start, applied);
+            } else {
+                IrrigationIndex.ChunkCoverage coverage = IrrigationIndex.coverage(world, baseX >> 4, baseZ >> 4);
+                forEachCell((cols, idx, x, y, z) -> {
+                    int s = inputSlot(cols, idx, y);
+                    // Nhiệt độ biome đã chuẩn hóa 0..1, cache theo cột / dải y (xem BiomeTemperatureCache)
+                    inputTemperature[s] = temperatures.get(world, x, y, z);
+                    // Bonus tưới tra từ coverage map của IrrigationIndex (O(1) / ô)
+                    inputIrrigation[s] = coverage.bonus(x, y, z);
+                    inputWeight[s] = 1f;
+                });
+            }
+            if (SoilMetrics.enabled()) {
+                int cells = size(); // mỗi ô một lần tra coverage tưới
+                SoilMetrics.CHUNK_TICKS.inc();
+                SoilMetrics.CELLS_TICKED.add(cells);
+                SoilMetrics.IRRIGATION_LOOKUPS.add(cells);
+            }
+        }
+
+        /**
+         * Nguồn đầu vào thay cho World (nhiệt độ chuẩn hóa, bonus tưới theo ô); dùng cho test / benchmark.
+         */
+        interface CellInputs {
+            float temperature(int x, int y, int z);
+
+            float irrigation(int x, int y, int z);
+        }
+
+        /**
+         * Như gatherInputs(World, int) nhưng đầu vào lấy từ inputs (không cần World, không ghi metrics).
+         */
+        void gatherInputs(boolean raining, int steps, long gameTime, CellInputs inputs) {
+            applyDeltas();
+            prepareInputs(raining, steps, gameTime);
+            forEachCell((cols, idx, x, y, z) -> {
+                int s = inputSlot(cols, idx, y);
+                inputTemperature[s] = inputs.temperature(x, y, z);
+                inputIrrigation[s] = inputs.irrigation(x, y, z);
+                inputWeight[s] = 1f;
+            });
+        }
+
+        /**
+         * Dọn ô idle, dựng layout buffer đầu vào (weight = 0) và ghi thông số chung của lượt.
+         */
+        private void prepareInputs(boolean raining, int steps, long gameTime) {
+            fadeHoeCounts(lastSimulated, gameTime);
+            pruneIntervals += Math.max(1, steps);
+            if (pruneIntervals >= PRUNE_EVERY) {
+                pruneIntervals = 0;
+                if (RHConfig.SERVER.pruneIdleCells.get()) {
+                    // Trước khi tính layout: xóa ô làm dời slot sparse
+                    SoilMetrics.CELLS_PRUNED.add(pruneIdleCells(RHConfig.SERVER.idleCellTolerance.get().floatValue()));
+                }
+            }
+            int total = 0;
+            for (int sy = 0; sy < SECTION_COUNT; sy++) {
+                inputOffset[sy] = total;
+                if (sections[sy] != null) total += SoilSection.SIZE;
+            }
+            inputOffset[SECTION_COUNT] = total;
+            if (sparse != null) total += sparse.capacity();
+            if (inputTemperature.length < total) {
+                int capacity = Math.max(total, inputTemperature.length + (inputTemperature.length >> 1));
+                inputTemperature = new float[capacity];
+                inputIrrigation = new float[capacity];
+                inputWeight = new float[capacity];
+                inputChange = new float[capacity];
+            }
+            Arrays.fill(inputWeight, 0, total, 0f);
+            inputRaining = raining;
+            inputSteps = Math.max(1, steps);
+            inputGameTime = gameTime;
+            inputReady = true;
+        }
+
+        /**
+         * Lịch sử cuốc phai dần (opt-in, hoeFadeDays > 0): khi có mốc chu kỳ hoeFadeDays ngày (game time) nằm
+         * trong (from, to], ô không được truy cập (get / getOrCreate / peek, vd. random tick của crop) kể từ lần
+         * xét trước bị giảm hoeCount 1 mỗi mốc (tối thiểu 0) => ô bỏ hoang cuối cùng trở thành idle và được dọn;
+         * ruộng đang canh tác giữ nguyên bonus cuốc. hoeFadeDays = 0 hoặc from chưa biết (-1): không phai.
+         */
+        private void fadeHoeCounts(long from, long to) {
+            int days = RHConfig.SERVER.hoeFadeDays.get();
+            if (days <= 0 || from < 0L || to <= from) return;
+            long period = days * 24000L;
+            long crossed = Math.floorDiv(to, period) - Math.floorDiv(from, period);
+            if (crossed <= 0L) return;
+            int fade = (int) Math.min(crossed, Integer.MAX_VALUE);
+            int mark = fadeMark;
+            fadeMark = accessClock;
+            int[] changed = {0};
+            forEachCell((cols, idx, x, y, z) -> {
+                int count = cols.hoeCount[idx];
+                if (count > 0 && cols.lastAccess[idx] <= mark) {
+                    cols.hoeCount[idx] = count > fade ? count - fade : 0;
+                    changed[0] |= 1 << (y >> 4);
+                }
+            });
+            for (int sy = 0; sy < SECTION_COUNT; sy++) {
+                if ((changed[0] & (1 << sy)) != 0) markDirty(sy);
+            }
+        }
+
+        private int inputSlot(SoilColumns cols, int idx, int y) {
+            return (sparse != null && cols == sparse.columns() ? inputOffset[SECTION_COUNT] : inputOffset[y >> 4]) + idx;
+        }
+
+        /**
+         * Vòng gom đầu vào của gatherInputs khi SoilProfiler đang chạy: đo riêng tra biome / tưới,
+         * phần còn lại tính vào GATHER; KERNEL / APPLY bổ sung ở simulate / publish.
+         */
+        private void gatherProfiled(World world, long start, long applied) {
+            long[] nanos = profileNanos;
+            Arrays.fill(nanos, 0L);
+            long t = System.nanoTime();
+            IrrigationIndex.ChunkCoverage coverage = IrrigationIndex.coverage(world, baseX >> 4, baseZ >> 4);
+            nanos[SoilProfiler.Phase.IRRIGATION.ordinal()] += System.nanoTime() - t;
+            forEachCell((cols, idx, x, y, z) -> {
+                int s = inputSlot(cols, idx, y);
+                long t1 = System.nanoTime();
+                inputTemperature[s] = temperatures.get(world, x, y, z);
+                long t2 = System.nanoTime();
+                inputIrrigation[s] = coverage.bonus(x, y, z);
+                nanos[SoilProfiler.Phase.BIOME.ordinal()] += t2 - t1;
+                nanos[SoilProfiler.Phase.IRRIGATION.ordinal()] += System.nanoTime() - t2;
+                inputWeight[s] = 1f;
+            });
+            nanos[SoilProfiler.Phase.APPLY.ordinal()] = applied - start;
+            nanos[SoilProfiler.Phase.GATHER.ordinal()] = System.nanoTime() - applied
+                    - nanos[SoilProfiler.Phase.BIOME.ordinal()] - nanos[SoilProfiler.Phase.IRRIGATION.ordinal()];
+            profileWorld = world;
+        }
+
+        /**
+         * Pha 2 (thread bất kỳ): chỉ tính toán trên dữ liệu của store này và buffer đầu vào,
+         * không chạm world / chunk. Dirty chỉ ghi bit section, việc báo chunk để dành cho publish.
+         * Mỗi ô chỉ phụ thuộc trạng thái của chính nó => kết quả không phụ thuộc thread hay thứ tự chunk.
+         *
+         * Column float: SoilKernel xử lý cả khối một lần (dense section / bảng sparse);
+         * column compact hoặc nhiều interval gộp (steps > 1): từng ô qua SoilData.scheduledUpdate.
+         */
+        public void simulate() {
+            if (!inputReady) return;
+            long start = profileWorld != null ? System.nanoTime() : 0L;
+            simulating = true;
+            try {
+                boolean raining = inputRaining;
+                for (int sy = 0; sy < SECTION_COUNT; sy++) {
+                    SoilSection section = sections[sy];
+                    if (section == null || section.isEmpty()) continue;
+                    if (simulateColumns(section.columns(), SoilSection.SIZE, inputOffset[sy], raining, sy)) {
+                        markDirty(sy);
                     }
                 }
-                if (!foundEmitter) {
-                    final int channelRadius = 3;
-                    for (int dx = -channelRadius; dx <= channelRadius && irrigationBonus == 0f; dx++) {
-                        for (int dz = -channelRadius; dz <= channelRadius && irrigationBonus == 0f; dz++) {
-                            mutable.set(pos.getX() + dx, pos.getY(), pos.getZ() + dz);
-                            if (world.getBlockState(mutable).getBlock() == ModBlocks.IRRIGATION_CHANNEL.get()) {
-                                irrigationBonus = 0.002f;
+                if (sparse != null && !sparse.isEmpty()) {
+                    int offset = inputOffset[SECTION_COUNT];
+                    if (simulateColumns(sparse.columns(), sparse.capacity(), offset, raining, -1)) {
+                        for (int slot = 0; slot < sparse.capacity(); slot++) {
+                            if (inputChange[offset + slot] != 0f) {
+                                markDirty(BlockPos.getY(sparse.keyAt(slot)) >> 4);
                             }
                         }
                     }
                 }
+            } finally {
+                simulating = false;
+            }
+            if (start != 0L) {
+                profileNanos[SoilProfiler.Phase.KERNEL.ordinal()] = System.nanoTime() - start;
+            }
+        }
+
+        /**
+         * @param sy section của khối (dense) hoặc -1 với bảng sparse (section lấy theo key)
+         * @return true nếu có ô thay đổi (qua kernel; đường từng ô tự đánh dấu dirty qua SoilData)
+         */
+        private boolean simulateColumns(SoilColumns cols, int n, int offset, boolean raining, int sy) {
+            int steps = inputSteps;
+            if (!cols.isCompact() && steps == 1) {
+                return SoilKernel.update(cols, n, inputTemperature, inputIrrigation, inputWeight, inputChange,
+                        offset, raining);
+            }
+            SoilData cursor = SoilData.cursor();
+            for (int i = 0; i < n; i++) {
+                int s = offset + i;
+                if (inputWeight[s] == 0f) continue;
+                int section = sy >= 0 ? sy : BlockPos.getY(sparse.keyAt(i)) >> 4;
+                cursor.bind(this, section, cols, i).scheduledUpdate(inputTemperature[s], raining, inputIrrigation[s], steps);
+            }
+            return false;
+        }
+
+        /**
+         * Pha 3 (main thread): công bố kết quả (thời điểm mô phỏng, Chunk.setUnsaved nếu có ô thay đổi
+         * hoặc thời điểm mô phỏng khác bản đã lưu).
+         */
+        public void publish() {
+            if (!inputReady) return;
+            long start = profileWorld != null ? System.nanoTime() : 0L;
+            inputReady = false;
+            lastSimulated = inputGameTime;
+            if (dirtySections != 0) {
+                notifyOwner();
+            } else {
+                markSimulationUnsaved();
+            }
+            if (start != 0L) {
+                profileNanos[SoilProfiler.Phase.APPLY.ordinal()] += System.nanoTime() - start;
+                SoilProfiler.record(profileWorld, ChunkPos.asLong(baseX >> 4, baseZ >> 4), profileNanos);
+                profileWorld = null;
+            }
+        }
 
-                e.getValue().scheduledUpdate(tempNorm, raining, irrigationBonus);
+        /**
+         * Mô phỏng bù khi chunk load: số interval đã bỏ lỡ kể từ lastSimulated được áp dụng cho mỗi ô
+         * trong một bước closed-form (SoilData.catchUp), chi phí không phụ thuộc thời gian vắng mặt.
+         * Store chưa từng được mô phỏng chỉ ghi nhận thời điểm hiện tại.
+         */
+        public void catchUp(World world, int interval) {
+            long now = world.getGameTime();
+            if (lastSimulated < 0L || lastSimulated > now || interval <= 0) {
+                lastSimulated = now;
+                return;
+            }
+            long steps = (now - lastSimulated) / interval;
+            if (steps <= 0L) return;
+            long from = lastSimulated;
+            lastSimulated += steps * interval;
+            applyDeltas();
+            fadeHoeCounts(from, lastSimulated);
+            markSimulationUnsaved();
+            if (isEmpty() || !RHConfig.SERVER.offlineCatchUp.get()) return;
+            float rainFraction = RHConfig.SERVER.catchUpRainFraction.get().floatValue();
+            IrrigationIndex.ChunkCoverage coverage = IrrigationIndex.coverage(world, baseX >> 4, baseZ >> 4);
+            SoilData cursor = SoilData.cursor();
+            forEachCell((cols, idx, x, y, z) -> cursor.bind(this, y >> 4, cols, idx)
+                    .catchUp(steps, temperatures.get(world, x, y, z), rainFraction, coverage.bonus(x, y, z)));
+            if (SoilMetrics.enabled()) {
+                SoilMetrics.IRRIGATION_LOOKUPS.add(size());
+            }
+        }
+
+        /**
+         * Đánh dấu chunk cần lưu nếu lastSimulated khác bản đã lưu (store rỗng thì bỏ qua). Gọi mỗi khi
+         * lastSimulated tiến lên => mọi lần lưu định kỳ đều ghi lastSimulated cùng tag với dữ liệu đất
+         * (serializeNBT), crash giữa hai lần lưu không làm mô phỏng bù lặp lại các interval đã chạy.
+         */
+        public void markSimulationUnsaved() {
+            if (owner != null && lastSimulated != savedSimulated && !isEmpty()) {
+                owner.setUnsaved(true);
             }
         }
 
+        /**
+         * Lưu theo format cột v3 (xem SoilNbtCodec): mỗi section có dữ liệu một CompoundNBT.
+         * Chỉ encode lại section dirty; section sạch dùng lại tag cache (tag không bị sửa sau khi tạo).
+         */
         @Override
         public CompoundNBT serializeNBT() {
+            long t = SoilMetrics.start();
+            applyDeltas();
             CompoundNBT root = new CompoundNBT();
-            int idx = 0;
-            for (Map.Entry<BlockPos, SoilData> entry : soilMap.entrySet()) {
-                CompoundNBT soilTag = (CompoundNBT) entry.getValue().serialize();
-                soilTag.putInt("x", entry.getKey().getX());
-                soilTag.putInt("y", entry.getKey().getY());
-                soilTag.putInt("z", entry.getKey().getZ());
-                root.put("soil_" + idx, soilTag);
-                idx++;
-            }
-            root.putInt("count", idx);
+            root.putInt("version", SoilNbtCodec.FORMAT_VERSION);
+            ListNBT list = new ListNBT();
+            for (int sy = 0; sy < SECTION_COUNT; sy++) {
+                if ((dirtySections & (1 << sy)) != 0 || encoded[sy] == null) {
+                    encoded[sy] = encodeSection(sy);
+                }
+                if (encoded[sy] != null) {
+                    list.add(encoded[sy]);
+                }
+            }
+            root.put("sections", list);
+            root.putLong("lastSimulated", lastSimulated);
+            savedSimulated = lastSimulated;
+            dirtySections = 0;
+            dirty = false;
+            SoilMetrics.NBT_SERIALIZE.stop(t);
             return root;
         }
 
+        private CompoundNBT encodeSection(int sy) {
+            SoilSection section = sections[sy];
+            int n = section != null ? section.size() : sparseCounts[sy];
+            if (n == 0) {
+                return null;
+            }
+            SoilColumns columns = section != null ? section.columns() : sparse.columns();
+            SoilNbtCodec.Writer writer = new SoilNbtCodec.Writer(sy, n, columns.isCompact());
+            if (section != null) {
+                for (int idx = section.nextOccupied(0); idx >= 0; idx = section.nextOccupied(idx + 1)) {
+                    writer.add(section.columns(), idx, idx);
+                }
+            } else {
+                for (int slot = 0; slot < sparse.capacity(); slot++) {
+                    long k = sparse.keyAt(slot);
+                    if (k == SparseSoilMap.EMPTY || BlockPos.getY(k) >> 4 != sy) continue;
+                    writer.add(sparse.columns(), slot,
+                            SoilSection.index(BlockPos.getX(k), BlockPos.getY(k), BlockPos.getZ(k)));
+                }
+            }
+            return writer.toNBT();
+        }
+
         @Override
         public void deserializeNBT(CompoundNBT nbt) {
-            soilMap.clear();
+            long t = SoilMetrics.start();
+            try {
+                readNBT(nbt);
+            } finally {
+                SoilMetrics.NBT_DESERIALIZE.stop(t);
+            }
+        }
+
+        private void readNBT(CompoundNBT nbt) {
+            Arrays.fill(sections, null);
+            Arrays.fill(sparseCounts, 0);
+            Arrays.fill(encoded, null);
+            sparse = null;
+            layoutStamp++;
+            dirtySections = 0;
+            dirty = false;
+            lastSimulated = nbt.contains("lastSimulated") ? nbt.getLong("lastSimulated") : -1L;
+            savedSimulated = lastSimulated;
+            if (!nbt.contains("version")) {
+                // Format cũ: chuyển đổi khi đọc, lần lưu sau sẽ ghi v3
+                readLegacy(nbt);
+                return;
+            }
+            SoilData cursor = SoilData.cursor();
+            ListNBT list = nbt.getList("sections", Constants.NBT.TAG_COMPOUND);
+            for (int t = 0; t < list.size(); t++) {
+                SoilNbtCodec.Reader reader;
+                try {
+                    reader = new SoilNbtCodec.Reader(list.getCompound(t));
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("[SoilCapability] Skipping soil section in chunk ({}, {}): {}",
+                            baseX >> 4, baseZ >> 4, e.getMessage());
+                    continue;
+                }
+                int sy = reader.sectionY();
+                if (sy < 0 || sy >= SECTION_COUNT || reader.size() == 0) continue;
+                for (int k = 0; k < reader.size(); k++) {
+                    int local = reader.localIndex(k);
+                    bind(cursor, BlockPos.asLong(baseX + SoilSection.localX(local),
+                            (sy << 4) + SoilSection.localY(local), baseZ + SoilSection.localZ(local)));
+                    reader.readCell(k, cursor.columns(), cursor.index());
+                }
+                // Dữ liệu vừa đọc trùng với tag => dùng luôn làm cache cho lần lưu sau; tag trùng section
+                // hoặc khác mode lưu attribute của column (đổi compactSoilStorage, v2) => encode lại khi lưu
+                if (encoded[sy] == null && reader.isCompact() == cursor.columns().isCompact()) {
+                    encoded[sy] = list.getCompound(t);
+                } else {
+                    encoded[sy] = null;
+                    dirtySections |= 1 << sy;
+                }
+            }
+        }
+
+        /**
+         * Đọc format cũ; SoilData.deserialize đánh dấu dirty nên chunk sẽ được ghi lại ở v3.
+         */
+        private void readLegacy(CompoundNBT nbt) {
             int count = nbt.getInt("count");
             for (int i = 0; i < count; i++) {
                 String key = "soil_" + i;
                 if (nbt.contains(key)) {
                     CompoundNBT soilTag = nbt.getCompound(key);
                     BlockPos pos = new BlockPos(soilTag.getInt("x"), soilTag.getInt("y"), soilTag.getInt("z"));
-                    SoilData data = new SoilData();
-                    data.deserialize(soilTag);
-                    soilMap.put(pos, data);
+                    getOrCreate(pos).deserialize(soilTag);
                 }
             }
         }
@@ -143,8 +905,13 @@ public final class SoilCapability {
      * Provider gắn vào chunk.
      */
     public static class Provider implements ICapabilityProvider, INBTSerializable<CompoundNBT> {
-        private final ChunkSoilStore store = new ChunkSoilStore();
-        private final LazyOptional<ChunkSoilStore> opt = LazyOptional.of(() -> store);
+        private final ChunkSoilStore store;
+        private final LazyOptional<ChunkSoilStore> opt;
+
+        public Provider(Chunk chunk) {
+            this.store = new ChunkSoilStore(chunk.getPos(), chunk);
+            this.opt = LazyOptional.of(() -> store);
+        }
 
         @Override
         public <T> LazyOptional<T> getCapability(Capability<T> cap, Direction side) {
@@ -168,51 +935,91 @@ public final class SoilCapability {
     @SubscribeEvent
     public static void attachChunk(AttachCapabilitiesEvent<Chunk> event) {
         if (!event.getObject().getLevel().isClientSide) {
-            event.addCapability(KEY, new Provider());
+            event.addCapability(KEY, new Provider(event.getObject()));
         }
     }
 
     /**
-     * Tick scheduler: mỗi server tick kiểm tra interval; cập nhật soil.
-     * (Tạm thời: update mỗi 40 ticks; sẽ lấy từ config
-     * RHConfig.SERVER.soilUpdateInterval)
+     * Helper public API để lấy hoặc tạo SoilData tại vị trí.
      */
-    private static int tickCounter = 0;
+    public static SoilData getOrCreate(World world, BlockPos pos) {
+        ChunkSoilStore store = getStore(world, pos);
+        return store != null ? store.getOrCreate(pos) : new SoilData();
+    }
 
-    @SubscribeEvent
-    public static void serverTick(TickEvent.ServerTickEvent event) {
-        if (event.phase != TickEvent.Phase.END)
-            return;
-        tickCounter++;
-        int interval = com.khanhromvn.realisticharvest.config.RHConfig.SERVER.soilUpdateInterval.get();
-        if (tickCounter < interval)
-            return;
-        tickCounter = 0;
-
-        // Temporary simplified approach - skip chunk iteration for now
-        // TODO: Implement proper chunk iteration for current Minecraft version
-        // This will be implemented once the basic compilation issues are resolved
+    /**
+     * Truy vấn chỉ đọc: view của ô nếu đã có dữ liệu, ngược lại SoilData.DEFAULT (dùng chung, không ghi được).
+     * Không tạo entry, không cấp phát khi chưa có dữ liệu.
+     */
+    public static SoilData getIfExists(World world, BlockPos pos) {
+        ChunkSoilStore store = getStore(world, pos);
+        SoilData data = store != null ? store.get(pos) : null;
+        return data != null ? data : SoilData.DEFAULT;
     }
 
     /**
-     * Helper public API để lấy hoặc tạo SoilData tại vị trí.
+     * Như getIfExists nhưng không cấp phát: trả cursor dùng chung gắn vào ô (x, y, z), hoặc ô tạm
+     * (detached, reset về mặc định mỗi lần gọi) nếu chưa có dữ liệu. Dùng cho đường nóng
+     * (CropGrowEvent mỗi random tick). Chỉ gọi trên server thread; kết quả chỉ hợp lệ tới lần peek
+     * kế tiếp, không được giữ lại. Cursor ở chế độ deferred: đọc thấy cả delta đang chờ,
+     * queue* ghi vào SoilDeltaBuffer của chunk thay vì ghi ô.
      */
-    public static SoilData getOrCreate(World world, BlockPos pos) {
-        Chunk chunk = (Chunk) world.getChunk(pos);
-        LazyOptional<ChunkSoilStore> capability = chunk.getCapability(CHUNK_SOIL_CAP);
-        if (capability.isPresent()) {
-            return capability.map(store -> store.getOrCreate(pos)).orElse(new SoilData());
+    public static SoilData peek(World world, int x, int y, int z) {
+        Chunk chunk = world.getChunk(x >> 4, z >> 4);
+        ChunkSoilStore store = chunk.getCapability(CHUNK_SOIL_CAP).orElse(null);
+        if (store != null && store.bindExisting(PEEK_CURSOR, x, y, z)) {
+            store.touch(PEEK_CURSOR.columns(), PEEK_CURSOR.index());
+            return PEEK_CURSOR.deferTo(BlockPos.asLong(x, y, z));
         }
-        return new SoilData();
+        PEEK_DETACHED.resetDetached();
+        return PEEK_DETACHED;
     }
 
-    public static SoilData getIfExists(World world, BlockPos pos) {
-        Chunk chunk = (Chunk) world.getChunk(pos);
-        LazyOptional<ChunkSoilStore> capability = chunk.getCapability(CHUNK_SOIL_CAP);
-        if (capability.isPresent()) {
-            SoilData data = capability.orElse(new ChunkSoilStore()).get(pos);
-            return data != null ? data : new SoilData();
+    /**
+     * Block mà ô soil có ý nghĩa: farmland, đất / cỏ vanilla (cuốc được hoặc thành farmland khi bị giẫm)
+     * và cultivated_soil. Ô tại vị trí đổi sang block khác bị bỏ (onBlockBreak / onBlockPlace / onFluidPlace).
+     */
+    public static boolean isSoilBlock(BlockState state) {
+        Block block = state.getBlock();
+        return block instanceof FarmlandBlock
+                || block == Blocks.DIRT || block == Blocks.COARSE_DIRT || block == Blocks.GRASS_BLOCK
+                || block == Blocks.GRASS_PATH || block == Blocks.PODZOL || block == Blocks.MYCELIUM
+                || block == ModBlocks.CULTIVATED_SOIL.get();
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onBlockBreak(BlockEvent.BreakEvent event) {
+        dropCell(event.getWorld(), event.getPos()); // block bị phá => không khí / chất lỏng
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onBlockPlace(BlockEvent.EntityPlaceEvent event) {
+        if (!isSoilBlock(event.getPlacedBlock())) {
+            dropCell(event.getWorld(), event.getPos());
+        }
+    }
+
+    @SubscribeEvent(priority = EventPriority.LOWEST)
+    public static void onFluidPlace(BlockEvent.FluidPlaceBlockEvent event) {
+        // Dung nham + nước tạo đá / cobblestone đè lên vị trí
+        if (!isSoilBlock(event.getNewState())) {
+            dropCell(event.getWorld(), event.getPos());
+        }
+    }
+
+    private static void dropCell(IWorld world, BlockPos pos) {
+        if (!(world instanceof ServerWorld)) return;
+        ChunkSoilStore store = getStore((World) world, pos);
+        if (store != null && store.remove(pos.getX(), pos.getY(), pos.getZ())) {
+            SoilMetrics.CELLS_DROPPED.inc();
         }
-        return new SoilData();
+    }
+
+    /**
+     * Store của chunk chứa pos (null nếu chunk không có capability). Không cấp phát fallback.
+     */
+    public static ChunkSoilStore getStore(World world, BlockPos pos) {
+        Chunk chunk = (Chunk) world.getChunk(pos);
+        return chunk.getCapability(CHUNK_SOIL_CAP).orElse(null);
     }
 }
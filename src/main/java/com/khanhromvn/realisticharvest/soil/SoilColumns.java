@@ -0,0 +1,203 @@
+package com.khanhromvn.realisticharvest.soil;
+
+/**
+ * SoilColumns: lưu trạng thái đất dạng struct-of-arrays (mỗi thuộc tính một mảng primitive).
+ *
+ * Thay vì mỗi ô đất là một object với EnumMap<SoilAttribute, Float> (boxed), mọi ô trong
+ * cùng một vùng (section 16x16x16) chia sẻ các mảng float/int; một ô = một chỉ số (index).
+ * SoilData chỉ là view mỏng trỏ vào (columns, index).
+ *
+ * Cột:
+ *  - attributes[attr.ordinal()][i] : giá trị chuẩn hóa 0..1 (pH đã normalize)
+ *  - fertilizerIntensity / organicMatterBonus / fertilizerDecayRate / stressScore : float
+ *  - ticksSinceFertilized / hoeCount : int
+ *  - lastAccess : int, mốc truy cập gần nhất (đồng hồ riêng của store, cho LRU); chỉ runtime, không lưu NBT
+ *
+ * Compact mode (RHConfig.SERVER.compactSoilStorage): attribute 0..1 lưu dạng fixed-point
+ * unsigned 16-bit (char) thay vì float => 2 byte / attribute.
+ * Sai số làm tròn mỗi lần ghi <= QUANT_MAX_ERROR (1 / 131070 ~ 7.6e-6); delta nhỏ nhất
+ * trong scheduledUpdate (~1e-4) vẫn lớn hơn nhiều lần bước lượng tử (1 / 65535).
+ * Sai lệch tích lũy so với float sau 5000 lần scheduledUpdate (SoilColumnsQuantizationTest):
+ * moisture < 5e-3 (tệ nhất khi thời tiết khô ổn định: delta bay hơi nhỏ bị làm tròn cùng một chiều
+ * cho tới khi chạm 0), các thuộc tính khác < 1e-3.
+ */
+public final class SoilColumns {
+
+    static final SoilAttribute[] ATTRIBUTES = SoilAttribute.values();
+    public static final int ATTRIBUTE_COUNT = ATTRIBUTES.length;
+
+    // Giá trị khởi tạo mặc định (giữ đúng như SoilData cũ)
+    static final float DEFAULT_MOISTURE = 0.5f;
+    static final float DEFAULT_PH = SoilAttribute.normalizePh(6.5f);
+    static final float DEFAULT_FERTILITY = 0.4f;
+    static final float DEFAULT_TEXTURE = 0.5f;      // loam mặc định
+    static final float DEFAULT_AERATION = 0.5f;
+    static final float DEFAULT_ORGANIC = 0.3f;
+    static final float DEFAULT_DECAY_RATE = 0.001f; // default; sẽ override bởi profile
+
+    static final float QUANT_SCALE = 65535f;
+    /** Sai số tối đa của một lần encode -> decode (nửa bước lượng tử). */
+    public static final float QUANT_MAX_ERROR = 0.5f / QUANT_SCALE;
+
+    private final int capacity;
+    private final boolean compact;
+
+    final float[][] attributes;   // null khi compact
+    final char[][] packed;        // null khi không compact
+    final float[] fertilizerIntensity;
+    final float[] organicMatterBonus;
+    final float[] fertilizerDecayRate;
+    final float[] stressScore;
+    final int[] ticksSinceFertilized;
+    final int[] hoeCount;
+    final int[] lastAccess;
+
+    public SoilColumns(int capacity) {
+        this(capacity, false);
+    }
+
+    public SoilColumns(int capacity, boolean compact) {
+        this.capacity = capacity;
+        this.compact = compact;
+        this.attributes = compact ? null : new float[ATTRIBUTE_COUNT][capacity];
+        this.packed = compact ? new char[ATTRIBUTE_COUNT][capacity] : null;
+        this.fertilizerIntensity = new float[capacity];
+        this.organicMatterBonus = new float[capacity];
+        this.fertilizerDecayRate = new float[capacity];
+        this.stressScore = new float[capacity];
+        this.ticksSinceFertilized = new int[capacity];
+        this.hoeCount = new int[capacity];
+        this.lastAccess = new int[capacity];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Float 0..1 -> fixed-point 16-bit (làm tròn gần nhất).
+     */
+    public static char quantize(float v) {
+        return (char) (SoilAttribute.clamp01(v) * QUANT_SCALE + 0.5f);
+    }
+
+    public static float dequantize(char q) {
+        return q / QUANT_SCALE;
+    }
+
+    /**
+     * Đưa ô i về trạng thái mặc định (dùng khi khởi tạo ô mới).
+     */
+    public void reset(int i) {
+        set(SoilAttribute.MOISTURE.ordinal(), i, DEFAULT_MOISTURE);
+        set(SoilAttribute.PH.ordinal(), i, DEFAULT_PH);
+        set(SoilAttribute.FERTILITY.ordinal(), i, DEFAULT_FERTILITY);
+        set(SoilAttribute.TEXTURE.ordinal(), i, DEFAULT_TEXTURE);
+        set(SoilAttribute.AERATION.ordinal(), i, DEFAULT_AERATION);
+        set(SoilAttribute.ORGANIC_MATTER.ordinal(), i, DEFAULT_ORGANIC);
+        fertilizerIntensity[i] = 0f;
+        organicMatterBonus[i] = 0f;
+        fertilizerDecayRate[i] = DEFAULT_DECAY_RATE;
+        stressScore[i] = 0f;
+        ticksSinceFertilized[i] = 0;
+        hoeCount[i] = 0;
+        lastAccess[i] = 0;
+    }
+
+    /**
+     * Ô i có trùng trạng thái mặc định (reset) không: mọi attribute, phân bón, stress, hoe.
+     * ticksSinceFertilized chỉ là bộ đếm thống kê nên không xét.
+     */
+    public boolean isDefault(int i) {
+        return isDefault(SoilAttribute.MOISTURE.ordinal(), i, DEFAULT_MOISTURE)
+                && isDefault(SoilAttribute.PH.ordinal(), i, DEFAULT_PH)
+                && isDefault(SoilAttribute.FERTILITY.ordinal(), i, DEFAULT_FERTILITY)
+                && isDefault(SoilAttribute.TEXTURE.ordinal(), i, DEFAULT_TEXTURE)
+                && isDefault(SoilAttribute.AERATION.ordinal(), i, DEFAULT_AERATION)
+                && isDefault(SoilAttribute.ORGANIC_MATTER.ordinal(), i, DEFAULT_ORGANIC)
+                && fertilizerIntensity[i] == 0f
+                && organicMatterBonus[i] == 0f
+                && fertilizerDecayRate[i] == DEFAULT_DECAY_RATE
+                && stressScore[i] == 0f
+                && hoeCount[i] == 0;
+    }
+
+    /**
+     * Ô i có thể bỏ mà không mất thông tin đáng kể: không có phân bón, stress hay lịch sử cuốc, và mọi
+     * attribute lệch mặc định không quá tolerance. Khác isDefault: cho phép sai lệch nhỏ vì độ ẩm dưới
+     * mô phỏng chỉ dao động quanh, ít khi trùng đúng giá trị mặc định. organicMatterBonus không xét: chỉ là
+     * tổng đã bón (không bao giờ giảm), tác dụng thật nằm ở ORGANIC_MATTER vốn đã so theo tolerance.
+     */
+    public boolean isIdle(int i, float tolerance) {
+        return fertilizerIntensity[i] == 0f
+                && stressScore[i] == 0f
+                && hoeCount[i] == 0
+                && isNear(SoilAttribute.MOISTURE.ordinal(), i, DEFAULT_MOISTURE, tolerance)
+                && isNear(SoilAttribute.PH.ordinal(), i, DEFAULT_PH, tolerance)
+                && isNear(SoilAttribute.FERTILITY.ordinal(), i, DEFAULT_FERTILITY, tolerance)
+                && isNear(SoilAttribute.TEXTURE.ordinal(), i, DEFAULT_TEXTURE, tolerance)
+                && isNear(SoilAttribute.AERATION.ordinal(), i, DEFAULT_AERATION, tolerance)
+                && isNear(SoilAttribute.ORGANIC_MATTER.ordinal(), i, DEFAULT_ORGANIC, tolerance);
+    }
+
+    private boolean isNear(int attr, int i, float def, float tolerance) {
+        return Math.abs(get(attr, i) - def) <= tolerance + QUANT_MAX_ERROR;
+    }
+
+    private boolean isDefault(int attr, int i, float def) {
+        return compact ? packed[attr][i] == quantize(def) : attributes[attr][i] == def;
+    }
+
+    public float get(SoilAttribute attr, int i) {
+        return get(attr.ordinal(), i);
+    }
+
+    public boolean set(SoilAttribute attr, int i, float v) {
+        return set(attr.ordinal(), i, v);
+    }
+
+    public float get(int attr, int i) {
+        return compact ? dequantize(packed[attr][i]) : attributes[attr][i];
+    }
+
+    /**
+     * Ghi attribute theo ordinal (clamp 0..1; compact => lượng tử hóa).
+     * @return true nếu giá trị lưu trữ thực sự thay đổi (dùng cho dirty tracking)
+     */
+    public boolean set(int attr, int i, float v) {
+        if (compact) {
+            char q = quantize(v);
+            if (packed[attr][i] == q) return false;
+            packed[attr][i] = q;
+        } else {
+            float c = SoilAttribute.clamp01(v);
+            if (attributes[attr][i] == c) return false;
+            attributes[attr][i] = c;
+        }
+        return true;
+    }
+
+    /**
+     * Copy toàn bộ trạng thái ô from sang ô to của dst.
+     */
+    public void copyTo(int from, SoilColumns dst, int to) {
+        for (int a = 0; a < ATTRIBUTE_COUNT; a++) {
+            if (compact && dst.compact) {
+                dst.packed[a][to] = packed[a][from];
+            } else {
+                dst.set(a, to, get(a, from));
+            }
+        }
+        dst.fertilizerIntensity[to] = fertilizerIntensity[from];
+        dst.organicMatterBonus[to] = organicMatterBonus[from];
+        dst.fertilizerDecayRate[to] = fertilizerDecayRate[from];
+        dst.stressScore[to] = stressScore[from];
+        dst.ticksSinceFertilized[to] = ticksSinceFertilized[from];
+        dst.hoeCount[to] = hoeCount[from];
+        dst.lastAccess[to] = lastAccess[from];
+    }
+}
@@ -2,14 +2,21 @@ package com.khanhromvn.realisticharvest.soil;
 
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.nbt.INBT;
+import net.minecraft.util.math.BlockPos;
 import net.minecraftforge.common.util.INBTSerializable;
 
-import java.util.EnumMap;
-import java.util.Map;
-
 /**
- * SoilData lưu trữ trạng thái động của đất tại vị trí / ô (design hiện tại đơn giản).
- * Sau có thể chuyển sang grid chunk-level để tối ưu.
+ * SoilData: view mỏng lên một ô đất trong SoilColumns (struct-of-arrays).
+ * Mọi ô của một chunk section dùng chung mảng primitive; SoilData chỉ giữ (columns, index)
+ * nên get/set không box/unbox. SoilData tạo bằng constructor mặc định dùng một
+ * SoilColumns 1 ô riêng (detached, không lưu vào chunk).
+ *
+ * View lấy từ ChunkSoilStore giữ (store, key) + stamp layout: khi store rehash / promote
+ * sparse -> dense, ô bị dời chỗ và view tự resolve lại ở lần truy cập kế tiếp.
+ *
+ * Dirty tracking: mọi mutator (set, applyFertilizer, registerStress, incrementHoeCount...) khi
+ * thực sự đổi giá trị sẽ đánh dấu section của store là dirty (=> Chunk.setUnsaved).
+ * Riêng bộ đếm ticksSinceFertilized không tự làm dirty (chỉ mang tính thống kê).
  *
  * Các thuộc tính:
  *  - Mọi attribute (trừ pH) lưu dạng normalized 0..1
@@ -19,39 +26,209 @@ import java.util.Map;
  */
 public class SoilData implements INBTSerializable<INBT> {
 
-    private final Map<SoilAttribute, Float> values = new EnumMap<>(SoilAttribute.class);
+    /**
+     * Ô mặc định dùng chung, chỉ đọc: SoilCapability.getIfExists trả về khi vị trí chưa có dữ liệu,
+     * không cấp phát / không tạo entry. Mọi mutator ném UnsupportedOperationException.
+     */
+    public static final SoilData DEFAULT = readOnlyDefault();
+
+    private SoilColumns cols;
+    private int index;
 
-    // Trạng thái phân bón
-    private float fertilizerIntensity = 0f;      // ảnh hưởng vào fertility
-    private float organicMatterBonus = 0f;       // ảnh hưởng giữ ẩm + giảm decay fertility
-    private int ticksSinceFertilized = 0;
-    private float fertilizerDecayRate = 0.001f;  // default; sẽ override bởi profile
+    // Store sở hữu ô (null với SoilData detached) + section để đánh dấu dirty
+    private SoilCapability.ChunkSoilStore store;
+    private int sectionY;
+    // View resolve theo key (false với cursor do store tự gắn khi duyệt)
+    private boolean resolvable;
+    private long key;
+    private int stamp;
 
-    // Phase 2: stress & intensive tracking
-    private float stressScore = 0f;              // tích lũy stress (0..1) ảnh hưởng tăng trưởng về sau
-    private int hoeCount = 0;                    // số lần cải tạo (dùng hoe) -> bonus intensive
+    // Delta chờ ghi (chỉ cursor của SoilCapability.peek, xem SoilDeltaBuffer):
+    // đọc fertility / organic / stress = committed + delta; queue* ghi vào buffer thay vì SoilColumns.
+    private boolean deferred;
+    private SoilDeltaBuffer deltas;
+    private long deltaKey;
+    private int deltaSlot = -1;
+
+    private boolean readOnly;
 
     public SoilData() {
-        // Giá trị khởi tạo
-        values.put(SoilAttribute.MOISTURE, 0.5f);
-        values.put(SoilAttribute.PH, SoilAttribute.normalizePh(6.5f));
-        values.put(SoilAttribute.FERTILITY, 0.4f);
-        values.put(SoilAttribute.TEXTURE, 0.5f);      // loam mặc định
-        values.put(SoilAttribute.AERATION, 0.5f);
-        values.put(SoilAttribute.ORGANIC_MATTER, 0.3f);
+        this(new SoilColumns(1), 0);
+        cols.reset(0);
+    }
+
+    /**
+     * View lên ô index của columns (không reset dữ liệu).
+     */
+    SoilData(SoilColumns cols, int index) {
+        this.cols = cols;
+        this.index = index;
+    }
+
+    /**
+     * View gắn với ô key (BlockPos.asLong) của store.
+     */
+    SoilData(SoilCapability.ChunkSoilStore store, long key) {
+        this.store = store;
+        this.sectionY = BlockPos.getY(key) >> 4;
+        this.resolvable = true;
+        this.key = key;
+        store.bind(this, key);
+    }
+
+    /**
+     * Gọi bởi store khi resolve lại vị trí của ô.
+     */
+    void rebind(SoilColumns cols, int index, int stamp) {
+        this.cols = cols;
+        this.index = index;
+        this.stamp = stamp;
+    }
+
+    SoilColumns columns() {
+        sync();
+        return cols;
+    }
+
+    int index() {
+        sync();
+        return index;
+    }
+
+    private void sync() {
+        if (resolvable && stamp != store.layoutStamp()) {
+            store.bind(this, key);
+        }
+    }
+
+    private void markDirty() {
+        if (store != null) {
+            store.markDirty(sectionY);
+        }
+    }
+
+    private static SoilData readOnlyDefault() {
+        SoilData data = new SoilData();
+        data.readOnly = true;
+        return data;
+    }
+
+    /**
+     * false với SoilData.DEFAULT.
+     */
+    public boolean isWritable() {
+        return !readOnly;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("SoilData.DEFAULT is read-only, use SoilCapability.getOrCreate to modify soil");
+        }
+    }
+
+    /**
+     * Cursor chưa gắn ô nào; dùng với bind() khi duyệt store.
+     */
+    static SoilData cursor() {
+        return new SoilData((SoilColumns) null, 0);
+    }
+
+    /**
+     * Đưa SoilData detached (constructor mặc định) về giá trị mặc định để dùng lại.
+     */
+    void resetDetached() {
+        cols.reset(index);
+    }
+
+    /**
+     * Chuyển view sang ô khác (dùng làm cursor khi duyệt để tránh cấp phát).
+     */
+    SoilData bind(SoilColumns cols, int index) {
+        this.cols = cols;
+        this.index = index;
+        this.deferred = false;
+        this.deltaSlot = -1;
+        return this;
+    }
+
+    /**
+     * Như bind(cols, index) nhưng mutation sẽ đánh dấu section sectionY của store là dirty.
+     */
+    SoilData bind(SoilCapability.ChunkSoilStore store, int sectionY, SoilColumns cols, int index) {
+        this.store = store;
+        this.sectionY = sectionY;
+        this.cols = cols;
+        this.index = index;
+        this.deferred = false;
+        this.deltaSlot = -1;
+        return this;
+    }
+
+    /**
+     * Bật chế độ delta chờ ghi cho cursor vừa bind(store, ...) vào ô key.
+     */
+    SoilData deferTo(long key) {
+        this.deferred = true;
+        this.deltaKey = key;
+        this.deltas = store.deltas();
+        this.deltaSlot = deltas != null ? deltas.find(key) : -1;
+        return this;
+    }
+
+    /**
+     * Cộng delta vào ô (clamp như set). Dùng khi áp dụng SoilDeltaBuffer.
+     */
+    void applyDelta(float fertility, float organic, float stress) {
+        if (fertility != 0f) {
+            set(SoilAttribute.FERTILITY, cols.get(SoilAttribute.FERTILITY, index) + fertility);
+        }
+        if (organic != 0f) {
+            set(SoilAttribute.ORGANIC_MATTER, cols.get(SoilAttribute.ORGANIC_MATTER, index) + organic);
+        }
+        if (stress != 0f) {
+            float v = SoilAttribute.clamp01(cols.stressScore[index] + stress);
+            if (v != cols.stressScore[index]) {
+                cols.stressScore[index] = v;
+                markDirty();
+            }
+        }
+    }
+
+    /**
+     * Trước khi ghi trực tiếp qua cursor deferred: áp dụng delta đang chờ của ô để committed = giá trị đã đọc.
+     */
+    private void settle() {
+        if (deltaSlot < 0) return;
+        int slot = deltaSlot;
+        deltaSlot = -1; // applyDelta -> set -> settle không lặp lại
+        float f = deltas.fertility[slot];
+        float o = deltas.organic[slot];
+        float st = deltas.stress[slot];
+        deltas.fertility[slot] = 0f;
+        deltas.organic[slot] = 0f;
+        deltas.stress[slot] = 0f;
+        applyDelta(f, o, st);
+        deltaSlot = slot;
     }
 
     /* ------------------- Basic Accessors ------------------- */
 
     public float get(SoilAttribute attr) {
-        return values.getOrDefault(attr, 0f);
+        sync();
+        float v = cols.get(attr, index);
+        if (deltaSlot >= 0) {
+            if (attr == SoilAttribute.FERTILITY) return SoilAttribute.clamp01(v + deltas.fertility[deltaSlot]);
+            if (attr == SoilAttribute.ORGANIC_MATTER) return SoilAttribute.clamp01(v + deltas.organic[deltaSlot]);
+        }
+        return v;
     }
 
     public void set(SoilAttribute attr, float v) {
-        if (attr == SoilAttribute.PH) {
-            values.put(SoilAttribute.PH, SoilAttribute.clamp01(v));
-        } else {
-            values.put(attr, SoilAttribute.clamp01(v));
+        checkWritable();
+        sync();
+        settle();
+        if (cols.set(attr, index, v)) {
+            markDirty();
         }
     }
 
@@ -81,7 +258,11 @@ public class SoilData implements INBTSerializable<INBT> {
         float texture = get(SoilAttribute.TEXTURE);      // cát=0, sét=1
         float aeration = get(SoilAttribute.AERATION);
         float organic = get(SoilAttribute.ORGANIC_MATTER);
+        return evaporation(texture, aeration, organic, temperatureNormalized, isSunny);
+    }
 
+    private static float evaporation(float texture, float aeration, float organic,
+                                     float temperatureNormalized, boolean isSunny) {
         // Cát: retention thấp => bốc hơi nhanh hơn => scaleTexture > 1 khi gần 0
         float textureFactor = 1.0f + (0.5f - texture) * 0.8f; // nếu texture=0 -> +0.4; texture=1 -> -0.4
         float aerationFactor = 1.0f + (aeration - 0.5f) * 0.3f; // thoáng khí cao => bốc hơi thêm
@@ -96,19 +277,27 @@ public class SoilData implements INBTSerializable<INBT> {
     /* ------------------- Fertilizer Handling ------------------- */
 
     public void applyFertilizer(FertilizerEffect effect) {
-        fertilizerIntensity += effect.fertilityBoost;
-        organicMatterBonus += effect.organicMatterBoost;
-        fertilizerDecayRate = effect.decayRate;
+        checkWritable();
+        sync();
+        cols.fertilizerIntensity[index] += effect.fertilityBoost;
+        cols.organicMatterBonus[index] += effect.organicMatterBoost;
+        cols.fertilizerDecayRate[index] = effect.decayRate;
+        markDirty();
         // Áp dụng ngay vào fertility & organic matter
         set(SoilAttribute.FERTILITY, get(SoilAttribute.FERTILITY) + effect.fertilityBoost);
         set(SoilAttribute.ORGANIC_MATTER, get(SoilAttribute.ORGANIC_MATTER) + effect.organicMatterBoost);
-        ticksSinceFertilized = 0;
+        cols.ticksSinceFertilized[index] = 0;
     }
 
     public void tickFertilizerDecay() {
-        if (fertilizerIntensity > 0f) {
-            fertilizerIntensity -= fertilizerDecayRate;
-            if (fertilizerIntensity < 0f) fertilizerIntensity = 0f;
+        checkWritable();
+        sync();
+        float intensity = cols.fertilizerIntensity[index];
+        if (intensity > 0f) {
+            float fertilizerDecayRate = cols.fertilizerDecayRate[index];
+            intensity -= fertilizerDecayRate;
+            cols.fertilizerIntensity[index] = intensity < 0f ? 0f : intensity;
+            markDirty();
             // Fertility giảm nhẹ theo cường độ decay, organic matter giảm chậm hơn
             float fert = get(SoilAttribute.FERTILITY);
             set(SoilAttribute.FERTILITY, fert - fertilizerDecayRate * 0.5f);
@@ -116,7 +305,7 @@ public class SoilData implements INBTSerializable<INBT> {
             float om = get(SoilAttribute.ORGANIC_MATTER);
             set(SoilAttribute.ORGANIC_MATTER, om - fertilizerDecayRate * 0.2f);
         }
-        ticksSinceFertilized++;
+        cols.ticksSinceFertilized[index]++;
     }
 
     /* ------------------- Global Tick Update ------------------- */
@@ -152,6 +341,94 @@ public class SoilData implements INBTSerializable<INBT> {
         tickFertilizerDecay();
     }
 
+    /**
+     * steps lần scheduledUpdate với cùng đầu vào (chunk ở tier LOD thưa của SoilTickScheduler):
+     * steps > 1 đi qua catchUp với thời tiết hiện tại (rainFraction 0 hoặc 1).
+     */
+    public void scheduledUpdate(float temperatureNormalized, boolean raining, float irrigationBonus, int steps) {
+        if (steps <= 1) {
+            scheduledUpdate(temperatureNormalized, raining, irrigationBonus);
+        } else {
+            catchUp(steps, temperatureNormalized, raining ? 1f : 0f, irrigationBonus);
+        }
+    }
+
+    /**
+     * Mô phỏng bù steps lần scheduledUpdate trong một bước (chi phí O(1), không phụ thuộc steps).
+     * Dùng khi chunk load lại sau một thời gian không được tick.
+     *
+     * - Phân bón: intensity giảm tuyến tính => số bước còn hoạt động = ceil(intensity / decayRate);
+     *   fertility / organic giảm tuyến tính trong các bước đó (clamp như tickFertilizerDecay).
+     * - Độ ẩm: delta mỗi bước tuyến tính theo organic => chia 2 pha:
+     *   (A) khi phân bón còn hoạt động (organic giảm dần, dùng organic trung bình của pha),
+     *   (B) phần còn lại (organic cố định). Mỗi pha: moisture = clamp(m + n * delta)
+     *   (chính xác khi delta không đổi dấu trong pha vì clamp từng bước cho cùng kết quả).
+     * - Thời tiết lúc vắng mặt không biết => dùng kỳ vọng theo rainFraction.
+     *
+     * @param steps số interval scheduler đã bỏ lỡ
+     * @param rainFraction tỉ lệ thời gian có mưa giả định 0..1
+     */
+    public void catchUp(long steps, float temperatureNormalized, float rainFraction, float irrigationBonus) {
+        checkWritable();
+        if (steps <= 0) return;
+        sync();
+        float texture = get(SoilAttribute.TEXTURE);
+        float aeration = get(SoilAttribute.AERATION);
+        float organic = get(SoilAttribute.ORGANIC_MATTER);
+        float fertility = get(SoilAttribute.FERTILITY);
+        float moisture = get(SoilAttribute.MOISTURE);
+        float absorption = 0.004f * (0.7f + (0.5f - Math.abs(texture - 0.5f)));
+
+        // Pha A: số bước phân bón còn hoạt động
+        float intensity = cols.fertilizerIntensity[index];
+        float rate = cols.fertilizerDecayRate[index];
+        long active = 0;
+        if (intensity > 0f) {
+            active = rate > 0f ? Math.min(steps, (long) Math.ceil(intensity / rate)) : steps;
+        }
+        float organicStep = rate > 0f ? rate * 0.2f : 0f;
+        if (active > 0) {
+            float meanOrganic = meanClampedLinear(organic, organicStep, active);
+            moisture = clampMoisture(moisture, active, texture, aeration, meanOrganic,
+                    temperatureNormalized, rainFraction, absorption, irrigationBonus);
+            if (rate > 0f) {
+                cols.fertilizerIntensity[index] = Math.max(0f, intensity - active * rate);
+                fertility -= active * rate * 0.5f;
+                organic = Math.max(0f, organic - active * organicStep);
+            }
+            markDirty();
+        }
+        // Pha B
+        long rest = steps - active;
+        if (rest > 0) {
+            moisture = clampMoisture(moisture, rest, texture, aeration, organic,
+                    temperatureNormalized, rainFraction, absorption, irrigationBonus);
+        }
+        set(SoilAttribute.MOISTURE, moisture);
+        set(SoilAttribute.FERTILITY, fertility);
+        set(SoilAttribute.ORGANIC_MATTER, organic);
+        long ticks = cols.ticksSinceFertilized[index] + steps;
+        cols.ticksSinceFertilized[index] = (int) Math.min(ticks, Integer.MAX_VALUE);
+    }
+
+    /** moisture sau n bước với delta kỳ vọng cố định (clamp 0..1 ở cuối là đủ khi delta không đổi). */
+    private static float clampMoisture(float moisture, long n, float texture, float aeration, float organic,
+                                       float temperatureNormalized, float rainFraction,
+                                       float absorption, float irrigationBonus) {
+        float sunny = evaporation(texture, aeration, organic, temperatureNormalized, true);
+        float rainy = evaporation(texture, aeration, organic, temperatureNormalized, false);
+        float delta = (1f - rainFraction) * -sunny + rainFraction * (absorption - rainy) + irrigationBonus;
+        return SoilAttribute.clamp01((float) (moisture + (double) delta * n));
+    }
+
+    /** Trung bình của max(0, start - k * step) với k = 0..n-1. */
+    private static float meanClampedLinear(float start, float step, long n) {
+        if (step <= 0f || start <= 0f) return Math.max(start, 0f);
+        long positive = Math.min(n, (long) Math.ceil(start / step)); // số bước còn > 0
+        double sum = positive * (double) start - step * (positive * (double) (positive - 1) / 2D);
+        return (float) (sum / n);
+    }
+
     /* ------------------- Serialization ------------------- */
 
     @Override
@@ -167,18 +444,23 @@ public class SoilData implements INBTSerializable<INBT> {
     }
 
     public INBT serialize() {
+        sync();
         CompoundNBT tag = new CompoundNBT();
-        values.forEach((a, v) -> tag.putFloat(a.name(), v));
-        tag.putFloat("fertilizerIntensity", fertilizerIntensity);
-        tag.putFloat("organicMatterBonus", organicMatterBonus);
-        tag.putInt("ticksSinceFertilized", ticksSinceFertilized);
-        tag.putFloat("fertilizerDecayRate", fertilizerDecayRate);
-        tag.putFloat("stressScore", stressScore);
-        tag.putInt("hoeCount", hoeCount);
+        for (SoilAttribute a : SoilColumns.ATTRIBUTES) {
+            tag.putFloat(a.name(), get(a));
+        }
+        tag.putFloat("fertilizerIntensity", cols.fertilizerIntensity[index]);
+        tag.putFloat("organicMatterBonus", cols.organicMatterBonus[index]);
+        tag.putInt("ticksSinceFertilized", cols.ticksSinceFertilized[index]);
+        tag.putFloat("fertilizerDecayRate", cols.fertilizerDecayRate[index]);
+        tag.putFloat("stressScore", cols.stressScore[index]);
+        tag.putInt("hoeCount", cols.hoeCount[index]);
         return tag;
     }
 
     public void deserialize(INBT inbt) {
+        checkWritable();
+        sync();
         if (inbt instanceof CompoundNBT) {
             CompoundNBT tag = (CompoundNBT) inbt;
             for (SoilAttribute a : SoilAttribute.values()) {
@@ -186,12 +468,13 @@ public class SoilData implements INBTSerializable<INBT> {
                     set(a, tag.getFloat(a.name()));
                 }
             }
-            fertilizerIntensity = tag.getFloat("fertilizerIntensity");
-            organicMatterBonus = tag.getFloat("organicMatterBonus");
-            ticksSinceFertilized = tag.getInt("ticksSinceFertilized");
-            fertilizerDecayRate = tag.getFloat("fertilizerDecayRate");
-            if (tag.contains("stressScore")) stressScore = tag.getFloat("stressScore");
-            if (tag.contains("hoeCount")) hoeCount = tag.getInt("hoeCount");
+            cols.fertilizerIntensity[index] = tag.getFloat("fertilizerIntensity");
+            cols.organicMatterBonus[index] = tag.getFloat("organicMatterBonus");
+            cols.ticksSinceFertilized[index] = tag.getInt("ticksSinceFertilized");
+            cols.fertilizerDecayRate[index] = tag.getFloat("fertilizerDecayRate");
+            if (tag.contains("stressScore")) cols.stressScore[index] = tag.getFloat("stressScore");
+            if (tag.contains("hoeCount")) cols.hoeCount[index] = tag.getInt("hoeCount");
+            markDirty();
         }
     }
 
@@ -202,6 +485,7 @@ public class SoilData implements INBTSerializable<INBT> {
      * Có thể scale theo pH / moisture stress để tăng tiêu hao.
      */
     public void consumeAfterGrowth() {
+        sync();
         float fertility = get(SoilAttribute.FERTILITY);
         float organic = get(SoilAttribute.ORGANIC_MATTER);
 
@@ -210,7 +494,7 @@ public class SoilData implements INBTSerializable<INBT> {
         organic -= 0.0008f;
 
         // Nếu stress cao (>0.5) tiêu hao thêm
-        if (stressScore > 0.5f) {
+        if (cols.stressScore[index] > 0.5f) {
             fertility -= 0.0015f;
         }
 
@@ -223,29 +507,108 @@ public class SoilData implements INBTSerializable<INBT> {
      * amount: 0..1 (nhỏ) sẽ cộng dồn và clamp.
      */
     public void registerStress(float amount) {
-        stressScore += amount;
-        if (stressScore > 1f) stressScore = 1f;
+        checkWritable();
+        sync();
+        settle();
+        float stress = cols.stressScore[index] + amount;
+        if (stress > 1f) stress = 1f;
+        if (stress != cols.stressScore[index]) {
+            cols.stressScore[index] = stress;
+            markDirty();
+        }
     }
 
     /**
      * Giảm stress chậm khi điều kiện tốt (có thể được gọi bởi routine bên ngoài).
      */
     public void passiveStressRecovery() {
-        if (stressScore > 0f) {
-            stressScore -= 0.001f;
-            if (stressScore < 0f) stressScore = 0f;
+        checkWritable();
+        sync();
+        settle();
+        float stress = cols.stressScore[index];
+        if (stress > 0f) {
+            stress -= 0.001f;
+            cols.stressScore[index] = stress < 0f ? 0f : stress;
+            markDirty();
         }
     }
 
     public float getStressScore() {
-        return stressScore;
+        sync();
+        float stress = cols.stressScore[index];
+        return deltaSlot >= 0 ? SoilAttribute.clamp01(stress + deltas.stress[deltaSlot]) : stress;
+    }
+
+    /* ------------------- Deferred crop side effects ------------------- */
+
+    /**
+     * Store chứa ô (null với SoilData detached, vd. ô tạm của SoilCapability.peek khi chưa có dữ liệu).
+     */
+    public SoilCapability.ChunkSoilStore owner() {
+        return store;
+    }
+
+    /**
+     * Như consumeAfterGrowth nhưng với cursor deferred chỉ ghi delta (áp dụng ở lượt scheduler).
+     * View thường: ghi trực tiếp.
+     */
+    public void queueConsumeAfterGrowth() {
+        if (!deferred) {
+            consumeAfterGrowth();
+            return;
+        }
+        float fertility = get(SoilAttribute.FERTILITY);
+        float organic = get(SoilAttribute.ORGANIC_MATTER);
+        float f = fertility - 0.0025f;
+        if (getStressScore() > 0.5f) {
+            f -= 0.0015f;
+        }
+        queue(SoilAttribute.clamp01(f) - fertility, SoilAttribute.clamp01(organic - 0.0008f) - organic, 0f);
+    }
+
+    /** Như registerStress, deferred nếu cursor deferred. */
+    public void queueStress(float amount) {
+        if (!deferred) {
+            registerStress(amount);
+            return;
+        }
+        float stress = getStressScore();
+        float v = stress + amount;
+        queue(0f, 0f, (v > 1f ? 1f : v) - stress);
+    }
+
+    /** Như passiveStressRecovery, deferred nếu cursor deferred. */
+    public void queueStressRecovery() {
+        if (!deferred) {
+            passiveStressRecovery();
+            return;
+        }
+        float stress = getStressScore();
+        if (stress > 0f) {
+            float v = stress - 0.001f;
+            queue(0f, 0f, (v < 0f ? 0f : v) - stress);
+        }
+    }
+
+    private void queue(float fertility, float organic, float stress) {
+        if (fertility == 0f && organic == 0f && stress == 0f) return;
+        if (deltas == null) {
+            deltas = store.deltaBuffer();
+        }
+        deltaSlot = deltas.findOrInsert(deltaKey);
+        deltas.fertility[deltaSlot] += fertility;
+        deltas.organic[deltaSlot] += organic;
+        deltas.stress[deltaSlot] += stress;
     }
 
     /**
      * Gọi khi dùng hoe cải tạo đất (FarmHoeItem).
      */
     public void incrementHoeCount() {
-        hoeCount++;
+        checkWritable();
+        sync();
+        cols.hoeCount[index]++;
+        markDirty();
     }
 
     /**
@@ -253,7 +616,8 @@ public class SoilData implements INBTSerializable<INBT> {
      * Diminishing returns: bonus = min(hoeCount * 0.01, 0.10)
      */
     public float getHoeBonus() {
-        float bonus = hoeCount * 0.01f;
+        sync();
+        float bonus = cols.hoeCount[index] * 0.01f;
         if (bonus > 0.10f) bonus = 0.10f;
         return bonus;
     }
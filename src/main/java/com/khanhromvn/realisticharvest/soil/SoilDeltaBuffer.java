@@ -0,0 +1,116 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import java.util.Arrays;
+
+/**
+ * SoilDeltaBuffer: delta chờ ghi (fertility, organic, stress) của một chunk, key = BlockPos.asLong().
+ * Open-addressing (linear probing) như SparseSoilMap, giá trị là các mảng float song song.
+ *
+ * Tác động phụ của crop (CropGrowthHandler: tiêu hao sau tăng trưởng, stress, phục hồi stress) được cộng
+ * dồn vào đây thay vì ghi thẳng vào SoilColumns mỗi random tick; ChunkSoilStore.applyDeltas ghi cả lô
+ * ở lượt scheduler (và trước khi đọc / lưu qua đường thường). Delta được tính từ giá trị committed + delta
+ * đang chờ, nên kết quả sau khi áp dụng giống ghi trực tiếp.
+ *
+ * Chỉ truy cập trên server thread.
+ */
+final class SoilDeltaBuffer {
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    float[] fertility;
+    float[] organic;
+    float[] stress;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    SoilDeltaBuffer() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, SparseSoilMap.EMPTY);
+        fertility = new float[capacity];
+        organic = new float[capacity];
+        stress = new float[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @return slot chứa key hoặc -1
+     */
+    int find(long key) {
+        int i = mix(key) & mask;
+        while (true) {
+            long k = keys[i];
+            if (k == key) return i;
+            if (k == SparseSoilMap.EMPTY) return -1;
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Slot của key, thêm entry delta 0 nếu chưa có (có thể rehash => slot cũ không còn đúng).
+     */
+    int findOrInsert(long key) {
+        int i = mix(key) & mask;
+        while (true) {
+            long k = keys[i];
+            if (k == key) return i;
+            if (k == SparseSoilMap.EMPTY) break;
+            i = (i + 1) & mask;
+        }
+        if (size + 1 > resizeAt) {
+            rehash(keys.length << 1);
+            return findOrInsert(key);
+        }
+        keys[i] = key;
+        size++;
+        return i;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        float[] oldFertility = fertility;
+        float[] oldOrganic = organic;
+        float[] oldStress = stress;
+        allocate(capacity);
+        size = 0;
+        for (int s = 0; s < oldKeys.length; s++) {
+            if (oldKeys[s] == SparseSoilMap.EMPTY) continue;
+            int slot = findOrInsert(oldKeys[s]);
+            fertility[slot] = oldFertility[s];
+            organic[slot] = oldOrganic[s];
+            stress[slot] = oldStress[s];
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, SparseSoilMap.EMPTY);
+        Arrays.fill(fertility, 0f);
+        Arrays.fill(organic, 0f);
+        Arrays.fill(stress, 0f);
+        size = 0;
+    }
+}
@@ -0,0 +1,91 @@
+package com.khanhromvn.realisticharvest.soil;
+
+/**
+ * SoilKernel: cập nhật theo lô (batch) cho cả một SoilColumns (dense section hoặc bảng sparse) thay vì
+ * chuỗi gọi scheduledUpdate -> computeEvaporation -> applyMoistureDelta -> set -> clamp01 cho từng ô.
+ *
+ * Chỉ dùng cho column float (không compact). Đầu vào theo slot (offset + i):
+ *  - temperature : nhiệt độ chuẩn hóa 0..1
+ *  - irrigation  : bonus tưới
+ *  - weight      : 1 nếu slot có ô đất, 0 nếu trống (slot trống tính "khống" nhưng không đổi giá trị,
+ *                  dữ liệu của nó sẽ được reset khi ô được tạo)
+ * Đầu ra change[offset + i] != 0 nếu ô thay đổi (dùng cho dirty tracking theo section).
+ *
+ * Pass 1 (độ ẩm) là vòng lặp thẳng trên mảng primitive, không gọi hàm / không nhánh phụ thuộc dữ liệu
+ * ngoài clamp (C2 biên dịch thành conditional move) để C2 unroll / auto-vectorize.
+ * Pass 2 (phân bón) chỉ làm việc với ô còn fertilizerIntensity > 0 (trường hợp hiếm).
+ * Thứ tự phép tính giữ đúng như SoilData.scheduledUpdate => cùng kết quả với đường xử lý từng ô.
+ */
+final class SoilKernel {
+
+    private static final int MOISTURE = SoilAttribute.MOISTURE.ordinal();
+    private static final int FERTILITY = SoilAttribute.FERTILITY.ordinal();
+    private static final int TEXTURE = SoilAttribute.TEXTURE.ordinal();
+    private static final int AERATION = SoilAttribute.AERATION.ordinal();
+    private static final int ORGANIC = SoilAttribute.ORGANIC_MATTER.ordinal();
+
+    private SoilKernel() {}
+
+    /**
+     * @param n số slot cần xử lý (0..n-1 của cols)
+     * @return true nếu có ô (weight = 1) thay đổi
+     */
+    static boolean update(SoilColumns cols, int n, float[] temperature, float[] irrigation,
+                          float[] weight, float[] change, int offset, boolean raining) {
+        float[] moisture = cols.attributes[MOISTURE];
+        float[] texture = cols.attributes[TEXTURE];
+        float[] aeration = cols.attributes[AERATION];
+        float[] organic = cols.attributes[ORGANIC];
+        float sunBonus = raining ? 0f : 0.0005f;
+        float rain = raining ? 1f : 0f;
+
+        // Pass 1: evaporation + rainfall + irrigation (mỗi bước clamp như applyMoistureDelta).
+        // Clamp bằng so sánh (giống SoilAttribute.clamp01); Math.min/max(float) chậm hơn nhiều vì xử lý NaN / -0.
+        for (int i = 0; i < n; i++) {
+            int s = offset + i;
+            float tex = texture[i];
+            float textureFactor = 1.0f + (0.5f - tex) * 0.8f;
+            float aerationFactor = 1.0f + (aeration[i] - 0.5f) * 0.3f;
+            float organicFactor = 1.0f - organic[i] * 0.25f;
+            float evap = 0.0008f * textureFactor * aerationFactor * organicFactor * (0.5f + temperature[s]) + sunBonus;
+            float absorption = 0.004f * (0.7f + (0.5f - Math.abs(tex - 0.5f)));
+            float w = weight[s];
+            float old = moisture[i];
+            float v = old - w * evap;
+            v = v < 0f ? 0f : (v > 1f ? 1f : v);
+            v = v + w * rain * absorption;
+            v = v < 0f ? 0f : (v > 1f ? 1f : v);
+            v = v + w * irrigation[s];
+            v = v < 0f ? 0f : (v > 1f ? 1f : v);
+            moisture[i] = v;
+            change[s] = v - old;
+        }
+        boolean changed = false;
+        for (int i = 0; i < n; i++) {
+            if (change[offset + i] != 0f) {
+                changed = true;
+                break;
+            }
+        }
+
+        // Pass 2: fertilizer decay (như SoilData.tickFertilizerDecay)
+        float[] intensity = cols.fertilizerIntensity;
+        float[] decayRate = cols.fertilizerDecayRate;
+        float[] fertility = cols.attributes[FERTILITY];
+        for (int i = 0; i < n; i++) {
+            if (intensity[i] <= 0f || weight[offset + i] == 0f) continue;
+            float rate = decayRate[i];
+            float left = intensity[i] - rate;
+            intensity[i] = left < 0f ? 0f : left;
+            fertility[i] = SoilAttribute.clamp01(fertility[i] - rate * 0.5f);
+            organic[i] = SoilAttribute.clamp01(organic[i] - rate * 0.2f);
+            change[offset + i] = 1f;
+            changed = true;
+        }
+        int[] ticks = cols.ticksSinceFertilized;
+        for (int i = 0; i < n; i++) {
+            ticks[i]++;
+        }
+        return changed;
+    }
+}
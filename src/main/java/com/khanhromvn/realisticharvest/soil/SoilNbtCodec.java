@@ -0,0 +1,196 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import net.minecraft.nbt.CompoundNBT;
+
+/**
+ * SoilNbtCodec: format NBT nhị phân dạng cột cho một chunk section của ChunkSoilStore.
+ *
+ * Format v3 (mỗi section một CompoundNBT, n = số ô):
+ *  - "y"    : int, chỉ số section (y >> 4)
+ *  - "n"    : int, số ô
+ *  - "idx"  : IntArray, local index 12-bit (y, z, x) đóng gói 2 giá trị 16-bit / int
+ *  - "attr" : IntArray, 6 cột attribute lượng tử hóa 16-bit (cột a, ô i ở vị trí a * n + i), 2 / int
+ *             - chỉ khi column compact
+ *  - "attrf": IntArray, 6 cột attribute float raw bits (cùng bố cục) - khi column không compact
+ *  - "f"    : IntArray, 4 cột float raw bits: fertilizerIntensity, organicMatterBonus,
+ *             fertilizerDecayRate, stressScore
+ *  - "i"    : IntArray, 2 cột int: ticksSinceFertilized, hoeCount
+ *
+ * Attribute giữ đúng độ chính xác của column: compact lưu 16-bit (như trong RAM), float lưu nguyên bit
+ * => round-trip không mất mát ở cả hai mode. Các field còn lại luôn giữ nguyên.
+ * v2 (luôn "attr") vẫn đọc được; section v2 được ghi lại ở v3 khi column không compact.
+ * Reader kiểm tra n (0..SoilSection.SIZE), độ dài mảng và local index trước khi dùng; dữ liệu hỏng
+ * => IllegalArgumentException (ChunkSoilStore bỏ qua section đó).
+ * Format cũ (count + soil_i với float đặt tên) vẫn được ChunkSoilStore đọc và chuyển đổi.
+ */
+public final class SoilNbtCodec {
+
+    public static final int FORMAT_VERSION = 3;
+
+    private static final int FLOAT_COLUMNS = 4;
+    private static final int INT_COLUMNS = 2;
+
+    private SoilNbtCodec() {}
+
+    /**
+     * Gom dữ liệu các ô của một section rồi xuất thành CompoundNBT.
+     */
+    public static final class Writer {
+        private final int sectionY;
+        private final int n;
+        private final boolean compact;
+        private final char[] idx;
+        private final char[] attr;       // compact
+        private final int[] attrBits;    // không compact
+        private final int[] floats;
+        private final int[] ints;
+        private int count;
+
+        /**
+         * @param compact true => attribute lưu 16-bit ("attr"), false => float raw bits ("attrf")
+         */
+        public Writer(int sectionY, int expectedCount, boolean compact) {
+            this.sectionY = sectionY;
+            this.n = expectedCount;
+            this.compact = compact;
+            this.idx = new char[expectedCount];
+            this.attr = compact ? new char[expectedCount * SoilColumns.ATTRIBUTE_COUNT] : null;
+            this.attrBits = compact ? null : new int[expectedCount * SoilColumns.ATTRIBUTE_COUNT];
+            this.floats = new int[expectedCount * FLOAT_COLUMNS];
+            this.ints = new int[expectedCount * INT_COLUMNS];
+        }
+
+        public void add(SoilColumns cols, int i, int localIndex) {
+            int k = count++;
+            idx[k] = (char) localIndex;
+            for (int a = 0; a < SoilColumns.ATTRIBUTE_COUNT; a++) {
+                if (compact) {
+                    attr[a * n + k] = cols.isCompact() ? cols.packed[a][i] : SoilColumns.quantize(cols.attributes[a][i]);
+                } else {
+                    attrBits[a * n + k] = Float.floatToRawIntBits(cols.get(a, i));
+                }
+            }
+            floats[k] = Float.floatToRawIntBits(cols.fertilizerIntensity[i]);
+            floats[n + k] = Float.floatToRawIntBits(cols.organicMatterBonus[i]);
+            floats[2 * n + k] = Float.floatToRawIntBits(cols.fertilizerDecayRate[i]);
+            floats[3 * n + k] = Float.floatToRawIntBits(cols.stressScore[i]);
+            ints[k] = cols.ticksSinceFertilized[i];
+            ints[n + k] = cols.hoeCount[i];
+        }
+
+        public CompoundNBT toNBT() {
+            if (count != n) {
+                throw new IllegalStateException("Soil section " + sectionY + ": expected " + n + " cells, got " + count);
+            }
+            CompoundNBT tag = new CompoundNBT();
+            tag.putInt("y", sectionY);
+            tag.putInt("n", n);
+            tag.putIntArray("idx", pack16(idx));
+            if (compact) {
+                tag.putIntArray("attr", pack16(attr));
+            } else {
+                tag.putIntArray("attrf", attrBits);
+            }
+            tag.putIntArray("f", floats);
+            tag.putIntArray("i", ints);
+            return tag;
+        }
+    }
+
+    /**
+     * Đọc một section đã encode. Dùng: for k in 0..size()-1: localIndex(k) -> readCell(k, cols, i).
+     */
+    public static final class Reader {
+        private final int sectionY;
+        private final int n;
+        private final char[] idx;
+        private final char[] attr;       // null nếu section lưu float
+        private final int[] attrBits;    // null nếu section lưu 16-bit
+        private final int[] floats;
+        private final int[] ints;
+
+        public Reader(CompoundNBT tag) {
+            this.sectionY = tag.getInt("y");
+            this.n = tag.getInt("n");
+            // Kiểm tra trước khi cấp phát: n hỏng (âm / quá lớn) không được gây lỗi ngoài IllegalArgumentException
+            if (n < 0 || n > SoilSection.SIZE) {
+                throw new IllegalArgumentException("Corrupt soil section " + sectionY + ": n=" + n);
+            }
+            this.idx = unpack16(tag.getIntArray("idx"), n);
+            for (int k = 0; k < n; k++) {
+                if (idx[k] >= SoilSection.SIZE) {
+                    throw new IllegalArgumentException("Corrupt soil section " + sectionY + ": index " + (int) idx[k]);
+                }
+            }
+            if (tag.contains("attrf")) {
+                this.attr = null;
+                this.attrBits = tag.getIntArray("attrf");
+                if (attrBits.length != n * SoilColumns.ATTRIBUTE_COUNT) {
+                    throw new IllegalArgumentException("Corrupt soil section " + sectionY + " (n=" + n + ")");
+                }
+            } else {
+                this.attr = unpack16(tag.getIntArray("attr"), n * SoilColumns.ATTRIBUTE_COUNT);
+                this.attrBits = null;
+            }
+            this.floats = tag.getIntArray("f");
+            this.ints = tag.getIntArray("i");
+            if (floats.length != n * FLOAT_COLUMNS || ints.length != n * INT_COLUMNS) {
+                throw new IllegalArgumentException("Corrupt soil section " + sectionY + " (n=" + n + ")");
+            }
+        }
+
+        public int sectionY() {
+            return sectionY;
+        }
+
+        public int size() {
+            return n;
+        }
+
+        /** true nếu attribute của section được lưu 16-bit (v2, hoặc v3 từ column compact). */
+        public boolean isCompact() {
+            return attr != null;
+        }
+
+        public int localIndex(int k) {
+            return idx[k];
+        }
+
+        public void readCell(int k, SoilColumns cols, int i) {
+            for (int a = 0; a < SoilColumns.ATTRIBUTE_COUNT; a++) {
+                if (attr == null) {
+                    cols.set(a, i, Float.intBitsToFloat(attrBits[a * n + k]));
+                } else if (cols.isCompact()) {
+                    cols.packed[a][i] = attr[a * n + k];
+                } else {
+                    cols.attributes[a][i] = SoilColumns.dequantize(attr[a * n + k]);
+                }
+            }
+            cols.fertilizerIntensity[i] = Float.intBitsToFloat(floats[k]);
+            cols.organicMatterBonus[i] = Float.intBitsToFloat(floats[n + k]);
+            cols.fertilizerDecayRate[i] = Float.intBitsToFloat(floats[2 * n + k]);
+            cols.stressScore[i] = Float.intBitsToFloat(floats[3 * n + k]);
+            cols.ticksSinceFertilized[i] = ints[k];
+            cols.hoeCount[i] = ints[n + k];
+        }
+    }
+
+    static int[] pack16(char[] values) {
+        int[] out = new int[(values.length + 1) >> 1];
+        for (int i = 0; i < values.length; i++) {
+            out[i >> 1] |= values[i] << ((i & 1) << 4);
+        }
+        return out;
+    }
+
+    static char[] unpack16(int[] packed, int length) {
+        if (packed.length != (length + 1) >> 1) {
+            throw new IllegalArgumentException("Packed length " + packed.length + " does not match " + length);
+        }
+        char[] out = new char[length];
+        for (int i = 0; i < length; i++) {
+            out[i] = (char) (packed[i >> 1] >>> ((i & 1) << 4));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,111 @@
+package com.khanhromvn.realisticharvest.soil;
+
+/**
+ * SoilSection: grid dày đặc cho một chunk section (16x16x16 = 4096 ô).
+ *
+ * - Dữ liệu nằm trong SoilColumns (capacity 4096, float hoặc compact 16-bit), địa chỉ = local index (y, z, x).
+ * - Occupancy bitmap (64 x long) đánh dấu ô nào đã được khởi tạo.
+ *
+ * Local index: (y & 15) << 8 | (z & 15) << 4 | (x & 15)
+ */
+public final class SoilSection {
+
+    public static final int SIZE = 16 * 16 * 16;
+
+    final SoilColumns columns;
+    private final long[] occupied = new long[SIZE >> 6];
+    private int count;
+
+    public SoilSection() {
+        this(false);
+    }
+
+    /**
+     * @param compact true => attribute lưu fixed-point 16-bit (xem SoilColumns)
+     */
+    public SoilSection(boolean compact) {
+        this.columns = new SoilColumns(SIZE, compact);
+    }
+
+    public static int index(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    public static int localX(int index) {
+        return index & 15;
+    }
+
+    public static int localZ(int index) {
+        return (index >> 4) & 15;
+    }
+
+    public static int localY(int index) {
+        return (index >> 8) & 15;
+    }
+
+    public boolean isOccupied(int index) {
+        return (occupied[index >> 6] & (1L << index)) != 0L;
+    }
+
+    /**
+     * Đánh dấu ô đã dùng; nếu là ô mới thì reset về mặc định.
+     * @return true nếu ô vừa được tạo mới
+     */
+    public boolean occupy(int index) {
+        long bit = 1L << index;
+        int word = index >> 6;
+        if ((occupied[word] & bit) != 0L) {
+            return false;
+        }
+        occupied[word] |= bit;
+        columns.reset(index);
+        count++;
+        return true;
+    }
+
+    /**
+     * Bỏ đánh dấu ô (dữ liệu cột giữ nguyên, bị reset khi occupy lại).
+     * @return true nếu ô đang được dùng
+     */
+    public boolean vacate(int index) {
+        long bit = 1L << index;
+        int word = index >> 6;
+        if ((occupied[word] & bit) == 0L) {
+            return false;
+        }
+        occupied[word] &= ~bit;
+        count--;
+        return true;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public SoilColumns columns() {
+        return columns;
+    }
+
+    /**
+     * Index của ô occupied đầu tiên có index >= from, hoặc -1 nếu hết.
+     * Dùng để duyệt: for (int i = s.nextOccupied(0); i >= 0; i = s.nextOccupied(i + 1))
+     */
+    public int nextOccupied(int from) {
+        if (from >= SIZE) return -1;
+        int word = from >> 6;
+        long bits = occupied[word] & (-1L << from);
+        while (true) {
+            if (bits != 0L) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == occupied.length) {
+                return -1;
+            }
+            bits = occupied[word];
+        }
+    }
+}
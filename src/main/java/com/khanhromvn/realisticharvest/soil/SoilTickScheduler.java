@@ -0,0 +1,421 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import com.khanhromvn.realisticharvest.RealisticHarvest;
+import com.khanhromvn.realisticharvest.config.RHConfig;
+import com.khanhromvn.realisticharvest.metrics.SoilMetrics;
+import com.khanhromvn.realisticharvest.metrics.SoilProfiler;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+/**
+ * SoilTickScheduler: cập nhật soil của các chunk đang load, mỗi chunk 1 lần / interval, với
+ * ngân sách thời gian mỗi tick (RHConfig.SERVER.soilTickBudgetMs).
+ *
+ * - Timing wheel: interval ô (bucket), chunk nằm ở ô phase = hash(ChunkPos) mod interval cố định (phaseOf),
+ *   nên mỗi tick chỉ ~1/interval số chunk tới hạn (không dồn cục theo thời điểm chunk load => không sawtooth).
+ * - Mỗi server tick: bucket của tick hiện tại được dồn vào backlog; xử lý backlog theo thứ tự,
+ *   mỗi chunk xử lý xong quay về bucket phase của nó (tần suất mỗi ô vẫn 1 lần / interval).
+ * - Hết ngân sách => phần còn lại trong backlog để tick sau (luôn xử lý ít nhất 1 chunk để đảm bảo tiến độ).
+ *   Chunk trễ vẫn giữ phase cũ, không dời lịch của các chunk khác.
+ * - Đổi soilUpdateInterval => dựng lại wheel với phase mới.
+ * - Chunk vừa load: ChunkSoilStore.catchUp bù thời gian chunk không được load (closed-form).
+ * - parallelSoilTick: các chunk tới hạn chỉ gom đầu vào trên main thread (gatherInputs, tính vào ngân sách),
+ *   rồi simulate song song trên ForkJoin pool (mỗi chunk một task), cuối cùng publish trên main thread.
+ *   Kết quả giống hệt chế độ serial (cùng kernel, mỗi ô độc lập, không phụ thuộc thứ tự).
+ * - LOD theo khoảng cách (Chebyshev, theo chunk) tới người chơi gần nhất cùng dimension:
+ *   gần (<= lodNearRadius) cập nhật mỗi interval, giữa (<= lodMidRadius) mỗi lodMidEvery interval,
+ *   xa (spawn chunk, chunk loader) mỗi lodFarEvery interval. Lượt bị bỏ qua chỉ đếm (Entry.pending);
+ *   tới lượt cập nhật thì gộp toàn bộ số interval đã trôi vào một bước (tickScheduled(world, steps)),
+ *   nên tổng tiến trình theo thời gian không đổi, chỉ thưa hơn. Phase của chunk giữ nguyên.
+ * - Delta chờ ghi từ crop (SoilDeltaBuffer) được áp dụng ở mỗi lượt của chunk, kể cả lượt LOD bỏ qua.
+ * - Phân bố công việc các tick gần nhất: /rh schedule; thời gian mỗi tick + gauge store: SoilMetrics (/rh stats);
+ *   thời gian theo pha / chunk trong một cửa sổ: SoilProfiler (/rh profile).
+ */
+@Mod.EventBusSubscriber(modid = RealisticHarvest.MOD_ID)
+public final class SoilTickScheduler {
+
+    static final class Entry {
+        final ServerWorld world;
+        final Chunk chunk;
+        final SoilCapability.ChunkSoilStore store;
+        int phase;
+        int pending; // số interval đã trôi kể từ lần cập nhật gần nhất (LOD)
+        boolean removed;
+
+        Entry(ServerWorld world, Chunk chunk, SoilCapability.ChunkSoilStore store, int phase) {
+            this.world = world;
+            this.chunk = chunk;
+            this.store = store;
+            this.phase = phase;
+        }
+    }
+
+    // Hằng số dãy R2 (1/g, 1/g^2 với g là nghiệm thực của x^3 = x + 1)
+    private static final double R2_A1 = 0.7548776662466927D;
+    private static final double R2_A2 = 0.5698402909980532D;
+
+    /** Số tick lưu lại cho thống kê phân bố công việc. */
+    public static final int HISTORY = 256;
+
+    private static ArrayDeque<Entry>[] wheel;
+    private static final ArrayDeque<Entry> BACKLOG = new ArrayDeque<>();
+    private static long tick;
+    private static final Map<World, Map<Long, Entry>> LOADED = new HashMap<>();
+    // ChunkEvent.Load có thể bắn ngoài main thread => gom lại, xử lý ở server tick
+    private static final Queue<Chunk> PENDING_LOADS = new ConcurrentLinkedQueue<>();
+
+    private static final List<SoilCapability.ChunkSoilStore> BATCH = new ArrayList<>();
+    // Vị trí chunk của người chơi theo world, dựng lười mỗi tick (x, z xen kẽ)
+    private static final Map<World, int[]> PLAYER_CHUNKS = new HashMap<>();
+    private static final int[] NO_PLAYERS = new int[0];
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static ForkJoinPool pool;
+
+    private static int lastProcessed;
+    private static long lastNanos;
+    private static final int[] historyProcessed = new int[HISTORY];
+    private static final long[] historyNanos = new long[HISTORY];
+
+    private SoilTickScheduler() {}
+
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        if (event.getWorld() instanceof ServerWorld && event.getChunk() instanceof Chunk) {
+            PENDING_LOADS.add((Chunk) event.getChunk());
+        }
+    }
+
+    @SubscribeEvent
+    public static void onChunkUnload(ChunkEvent.Unload event) {
+        if (!(event.getWorld() instanceof ServerWorld)) return;
+        Map<Long, Entry> entries = LOADED.get((World) event.getWorld());
+        if (entries == null) return;
+        Entry entry = entries.remove(event.getChunk().getPos().toLong());
+        if (entry != null) {
+            entry.removed = true;
+            entry.store.clearCaches();
+            entry.store.markSimulationUnsaved(); // chunk được lưu ngay sau event này
+        }
+    }
+
+    @SubscribeEvent
+    public static void onWorldUnload(WorldEvent.Unload event) {
+        Map<Long, Entry> entries = LOADED.remove(event.getWorld());
+        if (entries != null) {
+            entries.values().forEach(e -> e.removed = true);
+        }
+    }
+
+    @SubscribeEvent
+    public static void serverTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END)
+            return;
+        int interval = RHConfig.SERVER.soilUpdateInterval.get();
+        if (wheel == null || wheel.length != interval) {
+            rebuildWheel(interval);
+        }
+        drainPendingLoads(interval);
+
+        boolean parallel = RHConfig.SERVER.parallelSoilTick.get();
+        long budget = (long) (RHConfig.SERVER.soilTickBudgetMs.get() * 1_000_000D);
+        long start = System.nanoTime();
+        int processed = 0;
+        BATCH.clear();
+        ArrayDeque<Entry> due = wheel[(int) (tick % interval)];
+        BACKLOG.addAll(due);
+        due.clear();
+        while (!BACKLOG.isEmpty()) {
+            Entry entry = BACKLOG.peekFirst();
+            if (entry.removed) {
+                BACKLOG.pollFirst();
+                continue;
+            }
+            if (processed > 0 && System.nanoTime() - start >= budget) {
+                break; // carry over sang tick sau
+            }
+            BACKLOG.pollFirst();
+            if (++entry.pending < updateEvery(entry)) {
+                long t = SoilProfiler.start();
+                entry.store.applyDeltas(); // delta crop vẫn ghi mỗi interval
+                SoilProfiler.stop(entry.world, entry.chunk.getPos().toLong(), SoilProfiler.Phase.APPLY, t);
+                wheel[entry.phase].addLast(entry); // tier LOD thưa: chưa tới lượt
+                continue;
+            }
+            int steps = entry.pending;
+            entry.pending = 0;
+            if (!entry.store.isEmpty()) {
+                if (parallel) {
+                    entry.store.gatherInputs(entry.world, steps);
+                    BATCH.add(entry.store);
+                } else {
+                    entry.store.tickScheduled(entry.world, steps);
+                }
+            }
+            wheel[entry.phase].addLast(entry);
+            processed++;
+        }
+        PLAYER_CHUNKS.clear();
+        if (!BATCH.isEmpty()) {
+            simulateParallel(BATCH);
+            for (SoilCapability.ChunkSoilStore store : BATCH) {
+                store.publish();
+            }
+            BATCH.clear();
+        }
+        lastProcessed = processed;
+        lastNanos = System.nanoTime() - start;
+        int h = (int) (tick % HISTORY);
+        historyProcessed[h] = processed;
+        historyNanos[h] = lastNanos;
+        if (SoilMetrics.enabled()) {
+            SoilMetrics.SCHEDULER_TICK.record(lastNanos);
+            if (tick % SoilMetrics.GAUGE_INTERVAL == 0) {
+                long[] counts = storeCounts();
+                SoilMetrics.sampleStores(counts[0], counts[1], counts[2]);
+            }
+        }
+        tick++;
+    }
+
+    /**
+     * Số interval giữa hai lần cập nhật của chunk theo tier LOD (1 = mỗi interval).
+     */
+    private static int updateEvery(Entry entry) {
+        int midEvery = RHConfig.SERVER.lodMidEvery.get();
+        int farEvery = RHConfig.SERVER.lodFarEvery.get();
+        if (midEvery <= 1 && farEvery <= 1) return 1;
+        int[] players = PLAYER_CHUNKS.computeIfAbsent(entry.world, SoilTickScheduler::playerChunks);
+        ChunkPos pos = entry.chunk.getPos();
+        int distance = Integer.MAX_VALUE;
+        for (int i = 0; i < players.length; i += 2) {
+            int d = Math.max(Math.abs(players[i] - pos.x), Math.abs(players[i + 1] - pos.z));
+            if (d < distance) distance = d;
+        }
+        if (distance <= RHConfig.SERVER.lodNearRadius.get()) return 1;
+        if (distance <= RHConfig.SERVER.lodMidRadius.get()) return midEvery;
+        return farEvery;
+    }
+
+    private static int[] playerChunks(World world) {
+        List<ServerPlayerEntity> players = ((ServerWorld) world).players();
+        if (players.isEmpty()) return NO_PLAYERS;
+        int[] out = new int[players.size() * 2];
+        int n = 0;
+        for (ServerPlayerEntity player : players) {
+            if (player.isSpectator()) continue;
+            out[n++] = (int) Math.floor(player.getX()) >> 4;
+            out[n++] = (int) Math.floor(player.getZ()) >> 4;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Phase cố định của chunk trong wheel, hash theo vị trí dạng low-discrepancy (dãy R2):
+     * frac(x * a1 + z * a2) * interval. Vùng chunk liền nhau (spawn, quanh người chơi) chia gần như
+     * đều tuyệt đối cho các phase (625 chunk / 40 phase: 15..17 mỗi tick; hash ngẫu nhiên cho 8..25).
+     */
+    static int phaseOf(long chunkKey, int interval) {
+        double v = ChunkPos.getX(chunkKey) * R2_A1 + ChunkPos.getZ(chunkKey) * R2_A2;
+        int phase = (int) ((v - Math.floor(v)) * interval);
+        return phase < interval ? phase : interval - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void rebuildWheel(int interval) {
+        wheel = new ArrayDeque[interval];
+        for (int i = 0; i < interval; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        BACKLOG.clear();
+        for (Map<Long, Entry> entries : LOADED.values()) {
+            for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                entry.phase = phaseOf(e.getKey(), interval);
+                wheel[entry.phase].addLast(entry);
+            }
+        }
+    }
+
+    /**
+     * Pha 2 của tick song song: mỗi chunk một task trên ForkJoin pool riêng, main thread chờ xong.
+     * Mỗi store chỉ được đúng một task chạm tới; main thread không đụng store trong lúc chờ.
+     */
+    static void simulateParallel(List<SoilCapability.ChunkSoilStore> stores) {
+        if (stores.size() == 1) {
+            stores.get(0).simulate();
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(stores.size());
+        for (SoilCapability.ChunkSoilStore store : stores) {
+            tasks.add(() -> {
+                store.simulate();
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> f : pool().invokeAll(tasks)) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    LOGGER.error("[SoilTickScheduler] Soil simulation task failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ForkJoinPool pool() {
+        if (pool == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            pool = new ForkJoinPool(threads, p -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                t.setName("RealisticHarvest Soil Worker-" + t.getPoolIndex());
+                t.setDaemon(true);
+                return t;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    @SubscribeEvent
+    public static void onServerStopped(FMLServerStoppedEvent event) {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        wheel = null;
+        BACKLOG.clear();
+        LOADED.clear();
+        PLAYER_CHUNKS.clear();
+        PENDING_LOADS.clear();
+    }
+
+    private static void drainPendingLoads(int interval) {
+        Chunk chunk;
+        while ((chunk = PENDING_LOADS.poll()) != null) {
+            if (!(chunk.getLevel() instanceof ServerWorld)) continue;
+            ServerWorld world = (ServerWorld) chunk.getLevel();
+            if (world.getChunkSource().getChunkNow(chunk.getPos().x, chunk.getPos().z) != chunk) continue; // đã unload
+            SoilCapability.ChunkSoilStore store = chunk.getCapability(SoilCapability.CHUNK_SOIL_CAP).orElse(null);
+            if (store == null) continue;
+            Map<Long, Entry> entries = LOADED.computeIfAbsent(world, w -> new HashMap<>());
+            long key = chunk.getPos().toLong();
+            if (entries.containsKey(key)) continue;
+            store.catchUp(world, interval);
+            Entry entry = new Entry(world, chunk, store, phaseOf(key, interval));
+            entries.put(key, entry);
+            wheel[entry.phase].addLast(entry);
+        }
+    }
+
+    /** Số chunk đang nằm trong vòng scheduler. */
+    public static int queuedChunks() {
+        int n = 0;
+        for (Map<Long, Entry> entries : LOADED.values()) {
+            n += entries.size();
+        }
+        return n;
+    }
+
+    /** Store của các chunk đang load trong world (server thread). */
+    public static List<SoilCapability.ChunkSoilStore> loadedStores(World world) {
+        Map<Long, Entry> entries = LOADED.get(world);
+        if (entries == null) return new ArrayList<>();
+        List<SoilCapability.ChunkSoilStore> stores = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            stores.add(entry.store);
+        }
+        return stores;
+    }
+
+    /**
+     * Thống kê store của các chunk trong vòng scheduler: {chunk, chunk có ô, tổng số ô}. Chỉ gọi trên server thread.
+     */
+    public static long[] storeCounts() {
+        long chunks = 0, withCells = 0, cells = 0;
+        for (Map<Long, Entry> entries : LOADED.values()) {
+            for (Entry entry : entries.values()) {
+                chunks++;
+                int n = entry.store.size();
+                if (n > 0) {
+                    withCells++;
+                    cells += n;
+                }
+            }
+        }
+        return new long[]{chunks, withCells, cells};
+    }
+
+    /** Số chunk đã cập nhật ở tick gần nhất. */
+    public static int lastTickProcessed() {
+        return lastProcessed;
+    }
+
+    /** Thời gian (ns) scheduler dùng ở tick gần nhất. */
+    public static long lastTickNanos() {
+        return lastNanos;
+    }
+
+    /** Số chunk đang chờ trong backlog (đã tới hạn nhưng chưa xử lý vì hết ngân sách). */
+    public static int backlogSize() {
+        return BACKLOG.size();
+    }
+
+    /** Số chunk (còn load) ở từng phase của wheel = công việc dự kiến mỗi tick trong một interval. */
+    public static int[] phaseLoad() {
+        if (wheel == null) return new int[0];
+        int[] load = new int[wheel.length];
+        for (int i = 0; i < wheel.length; i++) {
+            for (Entry e : wheel[i]) {
+                if (!e.removed) load[i]++;
+            }
+        }
+        return load;
+    }
+
+    /** Số chunk đã xử lý ở n tick gần nhất (cũ -> mới), n <= HISTORY. */
+    public static int[] recentProcessed(int n) {
+        n = (int) Math.min(Math.min(n, HISTORY), tick);
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = historyProcessed[(int) ((tick - n + i) % HISTORY)];
+        }
+        return out;
+    }
+
+    /** Thời gian (ns) scheduler dùng ở n tick gần nhất (cũ -> mới), n <= HISTORY. */
+    public static long[] recentNanos(int n) {
+        n = (int) Math.min(Math.min(n, HISTORY), tick);
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = historyNanos[(int) ((tick - n + i) % HISTORY)];
+        }
+        return out;
+    }
+}
@@ -0,0 +1,145 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import java.util.Arrays;
+
+/**
+ * SparseSoilMap: open-addressing hash map (linear probing) key = BlockPos.asLong().
+ * Giá trị lưu inline trong SoilColumns song song với bảng key (slot i <-> cột i),
+ * nên không có BlockPos key object hay map node cho mỗi entry.
+ *
+ * Dùng cho chunk chỉ có vài chục ô đất được chạm tới (grid 4096 ô là lãng phí).
+ * Lưu ý: rehash / remove làm dịch slot => chỉ số slot không ổn định qua thay đổi cấu trúc.
+ */
+public final class SparseSoilMap {
+
+    /**
+     * Sentinel ô trống. BlockPos.asLong() chỉ ra Long.MIN_VALUE khi x = -2^25,
+     * nằm ngoài world border (+-30M) nên không va chạm key thật.
+     */
+    public static final long EMPTY = Long.MIN_VALUE;
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MIN_CAPACITY = 16;
+
+    private final boolean compact;
+    private long[] keys;
+    private SoilColumns values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public SparseSoilMap(boolean compact) {
+        this.compact = compact;
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new SoilColumns(capacity, compact);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Số slot của bảng (dùng để duyệt 0..capacity-1 với keyAt). */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /** Key tại slot, hoặc EMPTY. */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public SoilColumns columns() {
+        return values;
+    }
+
+    /**
+     * @return slot chứa key hoặc -1
+     */
+    public int find(long key) {
+        int i = mix(key) & mask;
+        while (true) {
+            long k = keys[i];
+            if (k == key) return i;
+            if (k == EMPTY) return -1;
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Lấy slot của key; nếu chưa có thì tạo entry mới (reset về mặc định).
+     */
+    public int findOrInsert(long key) {
+        int i = mix(key) & mask;
+        while (true) {
+            long k = keys[i];
+            if (k == key) return i;
+            if (k == EMPTY) break;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values.reset(i);
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+            return find(key);
+        }
+        return i;
+    }
+
+    /**
+     * Xóa key (backward-shift deletion, không để lại tombstone).
+     */
+    public boolean remove(long key) {
+        int i = find(key);
+        if (i < 0) return false;
+        keys[i] = EMPTY;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = keys[j];
+            if (k == EMPTY) break;
+            int home = mix(k) & mask;
+            // Entry tại j chỉ được dời về i nếu home của nó không nằm trong (i, j] (vòng tròn)
+            boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {
+                keys[i] = k;
+                values.copyTo(j, values, i);
+                keys[j] = EMPTY;
+                i = j;
+            }
+        }
+        size--;
+        return true;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        SoilColumns oldValues = values;
+        allocate(newCapacity);
+        for (int s = 0; s < oldKeys.length; s++) {
+            long k = oldKeys[s];
+            if (k == EMPTY) continue;
+            int i = mix(k) & mask;
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = k;
+            oldValues.copyTo(s, values, i);
+        }
+    }
+}
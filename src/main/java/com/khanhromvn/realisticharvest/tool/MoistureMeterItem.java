@@ -37,7 +37,8 @@ public class MoistureMeterItem extends Item {
             return ActionResultType.SUCCESS;
         }
 
-        SoilData data = SoilCapability.getOrCreate(ctx.getLevel(), ctx.getClickedPos());
+        // Chỉ đọc: vị trí chưa có dữ liệu trả giá trị mặc định, không tạo entry
+        SoilData data = SoilCapability.getIfExists(ctx.getLevel(), ctx.getClickedPos());
         float moisture = data.get(com.khanhromvn.realisticharvest.soil.SoilAttribute.MOISTURE);
 
         String status;
@@ -47,7 +48,8 @@ public class MoistureMeterItem extends Item {
         else if (moisture < 0.90f) status = "Ẩm cao";
         else status = "Quá dư nước";
 
-        player.displayClientMessage(new StringTextComponent(String.format("[Moisture] %.2f => %s", moisture, status)), false);
+        player.displayClientMessage(new StringTextComponent(String.format("[Moisture] %.2f => %s%s", moisture, status,
+                data == SoilData.DEFAULT ? " (mặc định)" : "")), false);
         return ActionResultType.SUCCESS;
     }
 
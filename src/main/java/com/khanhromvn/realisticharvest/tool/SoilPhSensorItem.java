@@ -27,11 +27,8 @@ public class SoilPhSensorItem extends Item {
             return ActionResultType.SUCCESS;
         }
 
+        // Chỉ đọc: vị trí chưa có dữ liệu trả giá trị mặc định, không tạo entry
         SoilData data = SoilCapability.getIfExists(ctx.getLevel(), ctx.getClickedPos());
-        if (data == null) {
-            // Tạo mới (lazy init) để người chơi có dữ liệu đọc
-            data = SoilCapability.getOrCreate(ctx.getLevel(), ctx.getClickedPos());
-        }
 
         float ph = data.getPhReal();
         String status;
@@ -39,7 +36,8 @@ public class SoilPhSensorItem extends Item {
         else if (ph > 7.5f) status = "Quá kiềm, dùng pH Down.";
         else status = "pH tối ưu.";
 
-        player.displayClientMessage(new StringTextComponent(String.format("[Sensor pH] pH=%.2f => %s", ph, status)), false);
+        player.displayClientMessage(new StringTextComponent(String.format("[Sensor pH] pH=%.2f => %s%s", ph, status,
+                data == SoilData.DEFAULT ? " (mặc định)" : "")), false);
         return ActionResultType.SUCCESS;
     }
 
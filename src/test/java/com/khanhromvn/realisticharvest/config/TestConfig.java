@@ -0,0 +1,22 @@
+package com.khanhromvn.realisticharvest.config;
+
+import com.electronwill.nightconfig.core.CommentedConfig;
+
+/**
+ * Nạp RHConfig vào config trong bộ nhớ để test đọc / ghi được ConfigValue mà không cần file config Forge.
+ * Test nào đổi giá trị phải tự đặt lại trong finally.
+ */
+public final class TestConfig {
+
+    private static boolean loaded;
+
+    private TestConfig() {}
+
+    public static synchronized void load() {
+        if (!loaded) {
+            RHConfig.SERVER_SPEC.setConfig(CommentedConfig.inMemory());
+            RHConfig.CLIENT_SPEC.setConfig(CommentedConfig.inMemory());
+            loaded = true;
+        }
+    }
+}
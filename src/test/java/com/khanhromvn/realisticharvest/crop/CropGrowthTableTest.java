@@ -0,0 +1,198 @@
+package com.khanhromvn.realisticharvest.crop;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.khanhromvn.realisticharvest.soil.SoilAttribute;
+import net.minecraft.util.ResourceLocation;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CropGrowthTable so với CropProfile.computeGrowth: sai số <= ERROR_BOUND trên mọi profile đi kèm mod
+ * và các profile range hẹp; benchmark (tag "benchmark") so thời gian hai đường.
+ */
+class CropGrowthTableTest {
+
+    private static final Path BUNDLED = Paths.get("src/main/resources/data/realisticharvest/crops");
+    // Làm tròn float của phép nhân / nội suy
+    private static final float SLACK = 1e-6f;
+
+    @Test
+    void bundledProfilesStayWithinBound() throws IOException {
+        List<CropProfile> profiles = bundledProfiles();
+        assertFalse(profiles.isEmpty(), "no bundled crop profiles found in " + BUNDLED.toAbsolutePath());
+        for (CropProfile profile : profiles) {
+            CropGrowthTable table = profile.growthTable();
+            assertNotNull(table, profile.cropId.toString());
+            assertWithinBound(profile, table);
+        }
+    }
+
+    @Test
+    void narrowRangesStayWithinBound() {
+        CropProfile narrow = profile(new CropProfile.Range(0.50f, 0.52f), new CropProfile.Range(6.4f, 6.5f),
+                new CropProfile.Range(0.70f, 0.74f), 0.9f, 0.8f, 1.0f, 1.3f);
+        CropGrowthTable table = narrow.growthTable();
+        assertNotNull(table);
+        assertWithinBound(narrow, table);
+    }
+
+    @Test
+    void tooNarrowRangeFallsBackToFormula() {
+        CropProfile degenerate = profile(new CropProfile.Range(0.5f, 0.5f), new CropProfile.Range(6f, 7f),
+                new CropProfile.Range(0.4f, 0.8f), 1.0f, 0.3f, 0.5f, 1.0f);
+        assertNull(degenerate.growthTable(), "zero-width range needs more than MAX_STEPS samples");
+    }
+
+    @Test
+    void stepsGrowWithSlope() {
+        CropProfile wide = profile(new CropProfile.Range(0.2f, 0.9f), new CropProfile.Range(5f, 8f),
+                new CropProfile.Range(0.1f, 0.9f), 0.2f, 0.2f, 0.2f, 1.0f);
+        CropProfile narrow = profile(new CropProfile.Range(0.5f, 0.52f), new CropProfile.Range(5f, 8f),
+                new CropProfile.Range(0.1f, 0.9f), 0.9f, 0.2f, 0.2f, 1.0f);
+        assertTrue(narrow.growthTable().steps()[0] > wide.growthTable().steps()[0]);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkTableAgainstFormula() throws IOException {
+        CropProfile profile = bundledProfiles().get(0);
+        CropGrowthTable table = profile.growthTable();
+        int n = 1 << 16;
+        float[] m = new float[n];
+        float[] p = new float[n];
+        float[] f = new float[n];
+        float[] a = new float[n];
+        float[] o = new float[n];
+        Random random = new Random(5);
+        for (int i = 0; i < n; i++) {
+            m[i] = random.nextFloat();
+            p[i] = random.nextFloat();
+            f[i] = random.nextFloat();
+            a[i] = random.nextFloat();
+            o[i] = random.nextFloat();
+        }
+        float sink = 0f;
+        for (int r = 0; r < 200; r++) {
+            for (int i = 0; i < n; i++) {
+                sink += table.growth(m[i], p[i], f[i], a[i], o[i]);
+                sink += profile.computeGrowth(m[i], SoilAttribute.denormalizePh(p[i]), f[i], a[i], o[i]);
+            }
+        }
+        int rounds = 500;
+        long t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (int i = 0; i < n; i++) {
+                sink += table.growth(m[i], p[i], f[i], a[i], o[i]);
+            }
+        }
+        long tableNanos = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (int i = 0; i < n; i++) {
+                sink += profile.computeGrowth(m[i], SoilAttribute.denormalizePh(p[i]), f[i], a[i], o[i]);
+            }
+        }
+        long formulaNanos = System.nanoTime() - t0;
+        double calls = (double) rounds * n;
+        System.out.printf("CropGrowthTable: %.2f ns/call table, %.2f ns/call formula (sink %.1f)%n",
+                tableNanos / calls, formulaNanos / calls, sink);
+    }
+
+    /**
+     * Lưới dày trên từng trục (các trục còn lại ngẫu nhiên), lân cận mọi điểm gãy và mẫu ngẫu nhiên 3 chiều,
+     * với cả 4 tổ hợp intensive bonus.
+     */
+    private static void assertWithinBound(CropProfile profile, CropGrowthTable table) {
+        Random random = new Random(profile.cropId.hashCode());
+        List<Float> moisture = axisPoints(profile.moistureRange, 1f, 0f);
+        List<Float> ph = axisPoints(profile.phRange, 7f, 3f);
+        List<Float> fertility = axisPoints(profile.fertilityRange, 1f, 0f);
+        float worst = 0f;
+        for (int bonus = 0; bonus < 4; bonus++) {
+            float aeration = (bonus & 1) != 0 ? 1f : 0f;
+            float organic = (bonus & 2) != 0 ? 1f : 0f;
+            for (float v : moisture) {
+                worst = Math.max(worst, error(profile, table, v, random.nextFloat(), random.nextFloat(), aeration, organic));
+            }
+            for (float v : ph) {
+                worst = Math.max(worst, error(profile, table, random.nextFloat(), v, random.nextFloat(), aeration, organic));
+            }
+            for (float v : fertility) {
+                worst = Math.max(worst, error(profile, table, random.nextFloat(), random.nextFloat(), v, aeration, organic));
+            }
+            for (int i = 0; i < 100_000; i++) {
+                worst = Math.max(worst, error(profile, table,
+                        pick(random, moisture), pick(random, ph), pick(random, fertility), aeration, organic));
+            }
+        }
+        assertTrue(worst <= CropGrowthTable.ERROR_BOUND + SLACK, profile.cropId + ": max error " + worst);
+    }
+
+    private static float error(CropProfile profile, CropGrowthTable table,
+                               float m, float p, float f, float aeration, float organic) {
+        float expected = profile.computeGrowth(m, SoilAttribute.denormalizePh(p), f, aeration, organic);
+        return Math.abs(table.growth(m, p, f, aeration, organic) - expected);
+    }
+
+    private static float pick(Random random, List<Float> points) {
+        return points.get(random.nextInt(points.size()));
+    }
+
+    /**
+     * Điểm thử trên trục normalized: lưới 1/4999 + lân cận min, max và hai điểm bão hòa (min - w, max + w).
+     * @param span / origin đổi giá trị thực sang normalized: (v - origin) / span
+     */
+    private static List<Float> axisPoints(CropProfile.Range range, float span, float origin) {
+        List<Float> out = new ArrayList<>();
+        for (int i = 0; i <= 4999; i++) {
+            out.add(i / 4999f);
+        }
+        float width = range.max - range.min + 0.0001f;
+        for (float edge : new float[]{range.min, range.max, range.min - width, range.max + width}) {
+            float norm = (edge - origin) / span;
+            for (int k = -64; k <= 64; k++) {
+                float v = norm + k * 1e-5f;
+                if (v >= 0f && v <= 1f) out.add(v);
+            }
+        }
+        return out;
+    }
+
+    private static CropProfile profile(CropProfile.Range moisture, CropProfile.Range ph, CropProfile.Range fertility,
+                                       float moisturePenalty, float phPenalty, float fertilityPenalty, float base) {
+        return new CropProfile(new ResourceLocation("test", "narrow"), moisture, ph, fertility,
+                moisturePenalty, phPenalty, fertilityPenalty, base, 0.6f, 0.05f, 0.5f, 0.07f);
+    }
+
+    static List<CropProfile> bundledProfiles() throws IOException {
+        List<CropProfile> out = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(BUNDLED, "*.json")) {
+            for (Path file : files) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    JsonObject root = new JsonParser().parse(reader).getAsJsonObject();
+                    String name = file.getFileName().toString();
+                    out.add(CropProfile.fromJson(new ResourceLocation("realisticharvest",
+                            name.substring(0, name.length() - ".json".length())), root));
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,63 @@
+package com.khanhromvn.realisticharvest.crop;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.khanhromvn.realisticharvest.fertilizer.FertilizerProfile;
+import net.minecraft.util.ResourceLocation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * fromJson của CropProfile / FertilizerProfile: giá trị ngoài miền được clamp, range đảo được đổi chỗ,
+ * profile vẫn load; chỉ thiếu "optimal" mới là lỗi.
+ */
+class CropProfileJsonTest {
+
+    private static final ResourceLocation ID = new ResourceLocation("minecraft", "wheat");
+
+    @Test
+    void outOfRangeCropValuesAreClamped() {
+        CropProfile profile = CropProfile.fromJson(ID, json("{"
+                + "\"optimal\": {"
+                + "  \"moisture\": {\"min\": -0.2, \"max\": 1.5},"
+                + "  \"ph\": {\"min\": 7.0, \"max\": 6.0},"
+                + "  \"fertility\": {\"min\": 0.5, \"max\": 0.9}},"
+                + "\"stress_penalty\": {\"moisture\": 2.0, \"ph\": -1.0},"
+                + "\"growth_multiplier\": -3.0,"
+                + "\"intensive_bonus\": {\"aeration\": {\"threshold\": 1.4, \"bonus\": -0.1}}}"));
+        assertEquals(0f, profile.moistureRange.min);
+        assertEquals(1f, profile.moistureRange.max);
+        assertEquals(6f, profile.phRange.min);
+        assertEquals(7f, profile.phRange.max);
+        assertEquals(0.5f, profile.fertilityRange.min);
+        assertEquals(0.9f, profile.fertilityRange.max);
+        assertEquals(1f, profile.moisturePenalty);
+        assertEquals(0f, profile.phPenalty);
+        assertEquals(0.5f, profile.fertilityPenalty);
+        assertEquals(0f, profile.baseGrowthMultiplier);
+        assertEquals(1f, profile.aerationThreshold);
+        assertEquals(0f, profile.aerationBonus);
+        assertEquals(0.07f, profile.organicBonus);
+    }
+
+    @Test
+    void missingOptimalIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CropProfile.fromJson(ID, json("{\"growth_multiplier\": 1.0}")));
+    }
+
+    @Test
+    void outOfRangeFertilizerValuesAreClamped() {
+        FertilizerProfile profile = FertilizerProfile.fromJson(new ResourceLocation("realisticharvest", "compost"),
+                json("{\"fertility_boost\": 3.0, \"organic_boost\": -2.0, \"decay_rate\": -0.5, \"ph_shift\": 9.0}"));
+        assertEquals(1f, profile.fertilityBoost);
+        assertEquals(-1f, profile.organicBoost);
+        assertEquals(0f, profile.decayRate);
+        assertEquals(7f, profile.phShift);
+    }
+
+    private static JsonObject json(String text) {
+        return new JsonParser().parse(text).getAsJsonObject();
+    }
+}
@@ -0,0 +1,113 @@
+package com.khanhromvn.realisticharvest.data;
+
+import com.google.gson.JsonObject;
+import com.khanhromvn.realisticharvest.crop.CropProfile;
+import net.minecraft.util.ResourceLocation;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pha load của JsonProfileReloadListener: cache nhị phân chỉ được ghi khi mọi file parse sạch
+ * (không lỗi, không cảnh báo clamp), để cảnh báo datapack còn được log ở lần khởi động sau.
+ */
+class JsonProfileReloadListenerTest {
+
+    private static final String VALID = "{\"optimal\": {"
+            + "\"moisture\": {\"min\": 0.45, \"max\": 0.75},"
+            + "\"ph\": {\"min\": 6.0, \"max\": 7.0},"
+            + "\"fertility\": {\"min\": 0.5, \"max\": 0.9}}}";
+    private static final String CLAMPED = "{\"optimal\": {"
+            + "\"moisture\": {\"min\": 0.45, \"max\": 0.75},"
+            + "\"ph\": {\"min\": 6.0, \"max\": 7.0},"
+            + "\"fertility\": {\"min\": 0.5, \"max\": 0.9}},"
+            + "\"growth_multiplier\": -2.0}";
+    private static final String BROKEN = "{\"growth_multiplier\": 1.0}";
+
+    @Test
+    void cleanFilesAreCached() throws IOException {
+        Path file = cacheFile();
+        Map<ResourceLocation, CropProfile> profiles = load(file, VALID, VALID);
+        assertEquals(2, profiles.size());
+        assertTrue(Files.exists(file));
+        // Lần sau trúng cache, cùng kết quả
+        assertEquals(2, load(file, VALID, VALID).size());
+    }
+
+    @Test
+    void warnedProfileIsLoadedButNotCached() throws IOException {
+        Path file = cacheFile();
+        Map<ResourceLocation, CropProfile> profiles = load(file, VALID, CLAMPED);
+        assertEquals(2, profiles.size());
+        assertEquals(0f, profiles.get(new ResourceLocation("minecraft", "crop1")).baseGrowthMultiplier);
+        assertFalse(Files.exists(file), "a profile with clamp warnings must not be cached");
+    }
+
+    @Test
+    void invalidFileIsSkippedAndNotCached() throws IOException {
+        Path file = cacheFile();
+        Map<ResourceLocation, CropProfile> profiles = load(file, VALID, BROKEN);
+        assertEquals(1, profiles.size());
+        assertFalse(Files.exists(file));
+    }
+
+    private static Path cacheFile() throws IOException {
+        Path dir = Files.createTempDirectory("rh-profile-cache");
+        dir.toFile().deleteOnExit();
+        return dir.resolve("crops.bin");
+    }
+
+    /** Chạy pha load (đồng bộ) trên các file crops/crop&lt;i&gt;.json với nội dung cho trước. */
+    private static Map<ResourceLocation, CropProfile> load(Path cacheFile, String... jsons) {
+        List<ResourceLocation> files = new ArrayList<>();
+        List<byte[]> contents = new ArrayList<>();
+        for (int i = 0; i < jsons.length; i++) {
+            files.add(new ResourceLocation("realisticharvest", "crops/crop" + i + ".json"));
+            contents.add(jsons[i].getBytes(StandardCharsets.UTF_8));
+        }
+        Map<ResourceLocation, CropProfile> profiles = listener(cacheFile).load(files, contents, Runnable::run).join();
+        cacheFile.toFile().deleteOnExit();
+        return profiles;
+    }
+
+    private static JsonProfileReloadListener<CropProfile> listener(Path cacheFile) {
+        return new JsonProfileReloadListener<CropProfile>("crops", "test", CropProfile.BINARY_VERSION,
+                new CompiledProfileCache(cacheFile)) {
+            @Override
+            protected ResourceLocation profileId(ResourceLocation file, JsonObject root) {
+                return new ResourceLocation("minecraft", baseName(file));
+            }
+
+            @Override
+            protected CropProfile parse(ResourceLocation id, JsonObject root, ProfileWarnings warnings) {
+                return CropProfile.fromJson(id, root, warnings);
+            }
+
+            @Override
+            protected void apply(Map<ResourceLocation, CropProfile> profiles) {
+            }
+
+            @Override
+            protected void writeProfile(CropProfile profile, DataOutput out) throws IOException {
+                profile.write(out);
+            }
+
+            @Override
+            protected CropProfile readProfile(ResourceLocation id, DataInput in) throws IOException {
+                return CropProfile.read(id, in);
+            }
+        };
+    }
+}
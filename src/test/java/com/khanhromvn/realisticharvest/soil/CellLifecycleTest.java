@@ -0,0 +1,176 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import com.khanhromvn.realisticharvest.config.RHConfig;
+import com.khanhromvn.realisticharvest.config.TestConfig;
+import com.khanhromvn.realisticharvest.soil.SoilCapability.ChunkSoilStore;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vòng đời ô: ô từng bón phân hữu cơ / từng cuốc vẫn được dọn khi đã trở về gần mặc định
+ * (pruneIdleCells, hoeFadeDays), nhịp dọn PRUNE_EVERY interval và evict LRU theo lô (maxCellsPerChunk).
+ */
+class CellLifecycleTest {
+
+    private static final ChunkPos CHUNK = new ChunkPos(0, 0);
+    private static final BlockPos POS = new BlockPos(3, 64, 5);
+    private static final long DAY = 24000L;
+
+    private static final ChunkSoilStore.CellInputs INPUTS = new ChunkSoilStore.CellInputs() {
+        @Override
+        public float temperature(int x, int y, int z) {
+            return 0.5f;
+        }
+
+        @Override
+        public float irrigation(int x, int y, int z) {
+            return 0f;
+        }
+    };
+
+    @BeforeAll
+    static void loadConfig() {
+        TestConfig.load();
+    }
+
+    @Test
+    void organicFertilizerHistoryDoesNotBlockPruning() {
+        ChunkSoilStore store = new ChunkSoilStore(CHUNK);
+        SoilData data = store.getOrCreate(POS);
+        float organic = data.get(SoilAttribute.ORGANIC_MATTER);
+        data.applyFertilizer(new SoilData.FertilizerEffect(0f, 0.15f, 0.001f));
+        round(store, 0L);
+        assertEquals(1, store.size(), "organic matter still raised");
+
+        // Organic matter đã phân hủy về mặc định; organicMatterBonus vẫn ghi 0.15
+        store.get(POS).set(SoilAttribute.ORGANIC_MATTER, organic);
+        round(store, 40L);
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void hoeHistoryIsKeptByDefault() {
+        assertEquals(0, (int) RHConfig.SERVER.hoeFadeDays.get());
+        ChunkSoilStore store = new ChunkSoilStore(CHUNK);
+        store.getOrCreate(POS).incrementHoeCount();
+        round(store, 0L);
+        round(store, 100 * DAY);
+        assertEquals(1, hoeCount(store));
+    }
+
+    @Test
+    void untouchedHoeHistoryFadesAndCellIsPruned() {
+        withFadeDays(3, () -> {
+            ChunkSoilStore store = new ChunkSoilStore(CHUNK);
+            SoilData data = store.getOrCreate(POS);
+            data.incrementHoeCount();
+            data.incrementHoeCount();
+            round(store, 0L);
+            // Chu kỳ đầu: ô vừa được cuốc (truy cập) => giữ nguyên
+            round(store, 3 * DAY);
+            assertEquals(2, hoeCount(store));
+            round(store, 6 * DAY - 1);
+            assertEquals(2, hoeCount(store));
+            round(store, 6 * DAY);
+            assertEquals(1, hoeCount(store));
+            // Bỏ hoang lâu: nhiều mốc phai gộp trong một lượt
+            round(store, 30 * DAY);
+            assertEquals(0, store.size());
+        });
+    }
+
+    @Test
+    void farmedCellKeepsHoeHistory() {
+        withFadeDays(3, () -> {
+            ChunkSoilStore store = new ChunkSoilStore(CHUNK);
+            store.getOrCreate(POS).incrementHoeCount();
+            round(store, 0L);
+            for (int period = 1; period <= 20; period++) {
+                // Random tick của crop đọc ô mỗi chu kỳ
+                store.get(POS);
+                round(store, period * 3 * DAY);
+            }
+            assertEquals(1, hoeCount(store));
+        });
+    }
+
+    private static void withFadeDays(int days, Runnable body) {
+        int before = RHConfig.SERVER.hoeFadeDays.get();
+        RHConfig.SERVER.hoeFadeDays.set(days);
+        try {
+            body.run();
+        } finally {
+            RHConfig.SERVER.hoeFadeDays.set(before);
+        }
+    }
+
+    @Test
+    void pruneRunsEveryPruneEveryIntervals() {
+        ChunkSoilStore store = new ChunkSoilStore(CHUNK);
+        store.getOrCreate(POS);
+        for (int i = 1; i < ChunkSoilStore.PRUNE_EVERY; i++) {
+            store.gatherInputs(false, 1, 40L * i, INPUTS);
+            store.publish();
+            assertEquals(1, store.size(), "interval " + i);
+        }
+        store.gatherInputs(false, 1, 40L * ChunkSoilStore.PRUNE_EVERY, INPUTS);
+        store.publish();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void evictionRemovesOldestCellsInBatches() {
+        int before = RHConfig.SERVER.maxCellsPerChunk.get();
+        RHConfig.SERVER.maxCellsPerChunk.set(100);
+        try {
+            ChunkSoilStore store = new ChunkSoilStore(CHUNK);
+            for (int i = 0; i < 100; i++) {
+                store.getOrCreate(cell(i));
+            }
+            // Chạm lại ô 0..9 => cũ nhất là 10..19
+            for (int i = 0; i < 10; i++) {
+                store.get(cell(i));
+            }
+            store.getOrCreate(cell(100));
+            assertEquals(91, store.size());
+            for (int i = 0; i < 10; i++) {
+                assertTrue(store.has(cell(i)), "recently used cell " + i);
+                assertFalse(store.has(cell(10 + i)), "oldest cell " + (10 + i));
+            }
+            // Đủ chỗ cho lô tiếp theo mà không evict
+            for (int i = 101; i < 110; i++) {
+                store.getOrCreate(cell(i));
+            }
+            assertEquals(100, store.size());
+            store.getOrCreate(cell(110));
+            assertEquals(91, store.size());
+        } finally {
+            RHConfig.SERVER.maxCellsPerChunk.set(before);
+        }
+    }
+
+    private static BlockPos cell(int i) {
+        return new BlockPos(CHUNK.getMinBlockX() + (i & 15), 64 + (i >> 8), CHUNK.getMinBlockZ() + ((i >> 4) & 15));
+    }
+
+    /**
+     * Một lượt scheduler không mô phỏng (giá trị ô giữ nguyên), gộp PRUNE_EVERY interval => luôn dọn ô idle;
+     * chỉ dọn ô và ghi thời điểm.
+     */
+    private static void round(ChunkSoilStore store, long gameTime) {
+        store.gatherInputs(false, ChunkSoilStore.PRUNE_EVERY, gameTime, INPUTS);
+        store.publish();
+    }
+
+    private static int hoeCount(ChunkSoilStore store) {
+        int[] count = {-1};
+        store.forEachCell((cols, i, x, y, z) -> count[0] = cols.hoeCount[i]);
+        return count[0];
+    }
+}
@@ -0,0 +1,234 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import com.khanhromvn.realisticharvest.config.RHConfig;
+import com.khanhromvn.realisticharvest.config.TestConfig;
+import com.khanhromvn.realisticharvest.soil.SoilCapability.ChunkSoilStore;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.ListNBT;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraftforge.common.util.Constants;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round-trip NBT của ChunkSoilStore: section sparse và dense, compact mode, format cũ (count + soil_i),
+ * section v2 lượng tử hóa, section hỏng; kèm kích thước payload của từng format.
+ */
+class ChunkSoilStoreNbtTest {
+
+    private static final ChunkPos CHUNK = new ChunkPos(3, -2);
+    // Section 4: vài ô (sparse); section 5: vượt denseSectionThreshold (dense)
+    private static final int SPARSE_CELLS = 40;
+
+    @BeforeAll
+    static void loadConfig() {
+        TestConfig.load();
+    }
+
+    @Test
+    void floatStoreRoundTripIsExact() {
+        List<BlockPos> cells = new ArrayList<>();
+        ChunkSoilStore store = populate(cells, 1);
+        CompoundNBT nbt = store.serializeNBT();
+        assertEquals(SoilNbtCodec.FORMAT_VERSION, nbt.getInt("version"));
+        ListNBT sections = nbt.getList("sections", Constants.NBT.TAG_COMPOUND);
+        assertEquals(2, sections.size());
+        for (int t = 0; t < sections.size(); t++) {
+            assertTrue(sections.getCompound(t).contains("attrf"));
+        }
+
+        ChunkSoilStore loaded = new ChunkSoilStore(CHUNK);
+        loaded.deserializeNBT(nbt);
+        assertSameCells(store, loaded, cells);
+        assertFalse(loaded.isDirty());
+    }
+
+    @Test
+    void compactStoreRoundTripIsExact() {
+        boolean before = RHConfig.SERVER.compactSoilStorage.get();
+        RHConfig.SERVER.compactSoilStorage.set(true);
+        try {
+            List<BlockPos> cells = new ArrayList<>();
+            ChunkSoilStore store = populate(cells, 2);
+            CompoundNBT nbt = store.serializeNBT();
+            ListNBT sections = nbt.getList("sections", Constants.NBT.TAG_COMPOUND);
+            for (int t = 0; t < sections.size(); t++) {
+                assertTrue(sections.getCompound(t).contains("attr"));
+            }
+            ChunkSoilStore loaded = new ChunkSoilStore(CHUNK);
+            loaded.deserializeNBT(nbt);
+            assertSameCells(store, loaded, cells);
+        } finally {
+            RHConfig.SERVER.compactSoilStorage.set(before);
+        }
+    }
+
+    @Test
+    void legacyFormatIsConverted() {
+        List<BlockPos> cells = new ArrayList<>();
+        ChunkSoilStore store = populate(cells, 3);
+        CompoundNBT legacy = legacy(store, cells);
+
+        ChunkSoilStore loaded = new ChunkSoilStore(CHUNK);
+        loaded.deserializeNBT(legacy);
+        assertSameCells(store, loaded, cells);
+        assertTrue(loaded.isDirty(), "legacy data must be rewritten in the current format");
+
+        ChunkSoilStore again = new ChunkSoilStore(CHUNK);
+        again.deserializeNBT(loaded.serializeNBT());
+        assertSameCells(store, again, cells);
+    }
+
+    @Test
+    void quantizedSectionsLoadIntoFloatColumns() {
+        List<BlockPos> cells = new ArrayList<>();
+        ChunkSoilStore store = populate(cells, 4);
+        // v2: mọi section lưu attribute 16-bit
+        CompoundNBT v2 = quantizedCopy(store, cells);
+
+        ChunkSoilStore loaded = new ChunkSoilStore(CHUNK);
+        loaded.deserializeNBT(v2);
+        for (BlockPos pos : cells) {
+            SoilData expected = store.get(pos);
+            SoilData actual = loaded.get(pos);
+            for (SoilAttribute a : SoilAttribute.values()) {
+                assertEquals(SoilColumns.dequantize(SoilColumns.quantize(expected.get(a))), actual.get(a));
+            }
+        }
+        // Section khác mode lưu => encode lại ở format hiện tại
+        ListNBT sections = loaded.serializeNBT().getList("sections", Constants.NBT.TAG_COMPOUND);
+        for (int t = 0; t < sections.size(); t++) {
+            assertTrue(sections.getCompound(t).contains("attrf"));
+        }
+    }
+
+    @Test
+    void corruptSectionIsSkipped() {
+        List<BlockPos> cells = new ArrayList<>();
+        ChunkSoilStore store = populate(cells, 5);
+        CompoundNBT nbt = store.serializeNBT();
+        ListNBT sections = nbt.getList("sections", Constants.NBT.TAG_COMPOUND);
+        CompoundNBT bad = new CompoundNBT();
+        bad.putInt("y", 7);
+        bad.putInt("n", -3);
+        sections.add(bad);
+
+        ChunkSoilStore loaded = new ChunkSoilStore(CHUNK);
+        loaded.deserializeNBT(nbt);
+        assertSameCells(store, loaded, cells);
+    }
+
+    @Test
+    void payloadSizes() throws IOException {
+        List<BlockPos> cells = new ArrayList<>();
+        ChunkSoilStore floats = populate(cells, 6);
+        int legacyBytes = bytes(legacy(floats, cells));
+        int floatBytes = bytes(floats.serializeNBT());
+        int compactBytes = bytes(quantizedCopy(floats, cells));
+        System.out.printf("soil payload for %d cells: legacy=%d B, v3 float=%d B, v3 compact=%d B%n",
+                cells.size(), legacyBytes, floatBytes, compactBytes);
+        assertTrue(floatBytes * 4 < legacyBytes, "columnar float payload should be far below legacy");
+        assertTrue(compactBytes < floatBytes);
+    }
+
+    /**
+     * Store với SPARSE_CELLS ô ở section 4 và (denseSectionThreshold + 10) ô ở section 5, giá trị ngẫu nhiên.
+     */
+    private static ChunkSoilStore populate(List<BlockPos> cells, long seed) {
+        ChunkSoilStore store = new ChunkSoilStore(CHUNK);
+        Random random = new Random(seed);
+        int dense = Math.min(RHConfig.SERVER.denseSectionThreshold.get() + 10, SoilSection.SIZE);
+        addCells(store, cells, random, 4, SPARSE_CELLS);
+        addCells(store, cells, random, 5, dense);
+        return store;
+    }
+
+    private static void addCells(ChunkSoilStore store, List<BlockPos> cells, Random random, int sy, int count) {
+        for (int local = 0; local < count; local++) {
+            BlockPos pos = new BlockPos(CHUNK.getMinBlockX() + SoilSection.localX(local),
+                    (sy << 4) + SoilSection.localY(local), CHUNK.getMinBlockZ() + SoilSection.localZ(local));
+            CompoundNBT tag = new CompoundNBT();
+            for (SoilAttribute a : SoilAttribute.values()) {
+                tag.putFloat(a.name(), random.nextFloat());
+            }
+            tag.putFloat("fertilizerIntensity", random.nextFloat());
+            tag.putFloat("organicMatterBonus", random.nextFloat() * 0.3f);
+            tag.putInt("ticksSinceFertilized", random.nextInt(5000));
+            tag.putFloat("fertilizerDecayRate", random.nextFloat() * 0.003f);
+            tag.putFloat("stressScore", random.nextFloat());
+            tag.putInt("hoeCount", random.nextInt(12));
+            store.getOrCreate(pos).deserialize(tag);
+            cells.add(pos);
+        }
+    }
+
+    private static CompoundNBT legacy(ChunkSoilStore store, List<BlockPos> cells) {
+        CompoundNBT nbt = new CompoundNBT();
+        nbt.putInt("count", cells.size());
+        for (int i = 0; i < cells.size(); i++) {
+            BlockPos pos = cells.get(i);
+            CompoundNBT soil = (CompoundNBT) store.get(pos).serialize();
+            soil.putInt("x", pos.getX());
+            soil.putInt("y", pos.getY());
+            soil.putInt("z", pos.getZ());
+            nbt.put("soil_" + i, soil);
+        }
+        return nbt;
+    }
+
+    /**
+     * Cùng dữ liệu, attribute lượng tử hóa 16-bit (như v2 / compact mode).
+     */
+    private static CompoundNBT quantizedCopy(ChunkSoilStore store, List<BlockPos> cells) {
+        boolean before = RHConfig.SERVER.compactSoilStorage.get();
+        RHConfig.SERVER.compactSoilStorage.set(true);
+        try {
+            ChunkSoilStore compact = new ChunkSoilStore(CHUNK);
+            compact.deserializeNBT(legacy(store, cells));
+            CompoundNBT nbt = compact.serializeNBT();
+            nbt.putInt("version", 2);
+            return nbt;
+        } finally {
+            RHConfig.SERVER.compactSoilStorage.set(before);
+        }
+    }
+
+    private static void assertSameCells(ChunkSoilStore expected, ChunkSoilStore actual, List<BlockPos> cells) {
+        assertEquals(expected.size(), actual.size());
+        for (BlockPos pos : cells) {
+            SoilData e = expected.get(pos);
+            SoilData a = actual.get(pos);
+            assertNotNull(a, "missing cell " + pos);
+            CompoundNBT et = (CompoundNBT) e.serialize();
+            CompoundNBT at = (CompoundNBT) a.serialize();
+            for (String key : et.getAllKeys()) {
+                if (key.equals("ticksSinceFertilized") || key.equals("hoeCount")) {
+                    assertEquals(et.getInt(key), at.getInt(key), key + " at " + pos);
+                } else {
+                    assertEquals(Float.floatToRawIntBits(et.getFloat(key)), Float.floatToRawIntBits(at.getFloat(key)),
+                            key + " at " + pos);
+                }
+            }
+        }
+    }
+
+    private static int bytes(CompoundNBT nbt) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompressedStreamTools.write(nbt, new DataOutputStream(out));
+        return out.size();
+    }
+}
@@ -0,0 +1,135 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import com.khanhromvn.realisticharvest.config.RHConfig;
+import com.khanhromvn.realisticharvest.config.TestConfig;
+import com.khanhromvn.realisticharvest.soil.SoilCapability.ChunkSoilStore;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pha simulate chạy song song (SoilTickScheduler.simulateParallel) phải cho kết quả giống hệt từng bit
+ * với chạy tuần tự trên main thread: kernel theo khối (float, 1 interval), đường từng ô (nhiều interval gộp)
+ * và column compact.
+ */
+class ParallelSimulationTest {
+
+    private static final int CHUNKS = 24;
+    private static final int ROUNDS = 40;
+
+    private static final ChunkSoilStore.CellInputs INPUTS = new ChunkSoilStore.CellInputs() {
+        @Override
+        public float temperature(int x, int y, int z) {
+            return 0.3f + ((x * 31 + z * 17 + y) & 7) * 0.1f;
+        }
+
+        @Override
+        public float irrigation(int x, int y, int z) {
+            return ((x ^ z) & 3) == 0 ? 0.002f : 0f;
+        }
+    };
+
+    @BeforeAll
+    static void loadConfig() {
+        TestConfig.load();
+    }
+
+    @Test
+    void kernelPathMatchesSerial() {
+        run(false, 1);
+    }
+
+    @Test
+    void mergedIntervalsMatchSerial() {
+        run(false, 3);
+    }
+
+    @Test
+    void compactColumnsMatchSerial() {
+        boolean before = RHConfig.SERVER.compactSoilStorage.get();
+        RHConfig.SERVER.compactSoilStorage.set(true);
+        try {
+            run(true, 1);
+        } finally {
+            RHConfig.SERVER.compactSoilStorage.set(before);
+        }
+    }
+
+    private static void run(boolean compact, int steps) {
+        List<ChunkSoilStore> serial = new ArrayList<>();
+        List<ChunkSoilStore> parallel = new ArrayList<>();
+        Random random = new Random(compact ? 11 : steps);
+        for (int c = 0; c < CHUNKS; c++) {
+            ChunkPos chunk = new ChunkPos(c, -c);
+            ChunkSoilStore a = new ChunkSoilStore(chunk);
+            ChunkSoilStore b = new ChunkSoilStore(chunk);
+            // Vài chunk có section dense (cột đất dày), còn lại sparse
+            int cells = c % 4 == 0 ? 1500 : random.nextInt(400);
+            for (int i = 0; i < cells; i++) {
+                BlockPos pos = c % 4 == 0
+                        ? new BlockPos(chunk.getMinBlockX() + (i & 15), 64 + (i >> 8), chunk.getMinBlockZ() + ((i >> 4) & 15))
+                        : new BlockPos(chunk.getMinBlockX() + random.nextInt(16), random.nextInt(256),
+                                chunk.getMinBlockZ() + random.nextInt(16));
+                float moisture = random.nextFloat();
+                float texture = random.nextFloat();
+                boolean fertilized = random.nextInt(3) == 0;
+                for (ChunkSoilStore store : new ChunkSoilStore[]{a, b}) {
+                    SoilData data = store.getOrCreate(pos);
+                    data.set(SoilAttribute.MOISTURE, moisture);
+                    data.set(SoilAttribute.TEXTURE, texture);
+                    if (fertilized) {
+                        data.applyFertilizer(SoilData.FertilizerEffect.nitrogenMix());
+                    }
+                }
+            }
+            serial.add(a);
+            parallel.add(b);
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean raining = round % 7 < 2;
+            long gameTime = 40L * round;
+            for (ChunkSoilStore store : serial) {
+                store.gatherInputs(raining, steps, gameTime, INPUTS);
+                store.simulate();
+                store.publish();
+            }
+            for (ChunkSoilStore store : parallel) {
+                store.gatherInputs(raining, steps, gameTime, INPUTS);
+            }
+            SoilTickScheduler.simulateParallel(parallel);
+            for (ChunkSoilStore store : parallel) {
+                store.publish();
+            }
+        }
+        int cells = 0;
+        for (int c = 0; c < CHUNKS; c++) {
+            assertEquals(snapshot(serial.get(c)), snapshot(parallel.get(c)), "chunk " + c);
+            cells += serial.get(c).size();
+        }
+        assertTrue(cells > 0);
+    }
+
+    /** Toàn bộ trạng thái ô (raw bits) theo thứ tự duyệt. */
+    private static List<Long> snapshot(ChunkSoilStore store) {
+        List<Long> out = new ArrayList<>();
+        store.forEachCell((cols, i, x, y, z) -> {
+            out.add(BlockPos.asLong(x, y, z));
+            for (int a = 0; a < SoilColumns.ATTRIBUTE_COUNT; a++) {
+                out.add((long) Float.floatToRawIntBits(cols.get(a, i)));
+            }
+            out.add((long) Float.floatToRawIntBits(cols.fertilizerIntensity[i]));
+            out.add((long) Float.floatToRawIntBits(cols.stressScore[i]));
+            out.add((long) cols.ticksSinceFertilized[i]);
+            out.add((long) cols.hoeCount[i]);
+        });
+        return out;
+    }
+}
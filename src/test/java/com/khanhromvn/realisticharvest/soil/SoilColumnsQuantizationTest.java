@@ -0,0 +1,101 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sai số lượng tử hóa 16-bit của SoilColumns (compactSoilStorage): một lần encode / decode và
+ * sai lệch tích lũy so với column float qua nhiều lần scheduledUpdate.
+ */
+class SoilColumnsQuantizationTest {
+
+    // Phép nhân / chia float trong quantize / dequantize có thể lệch thêm vài ulp
+    private static final float ROUNDING_SLACK = 2f * Math.ulp(1f);
+
+    @Test
+    void maxErrorIsHalfStep() {
+        assertEquals(0.5f / 65535f, SoilColumns.QUANT_MAX_ERROR);
+    }
+
+    @Test
+    void roundTripWithinMaxError() {
+        float worst = 0f;
+        // Điểm giữa hai bước lượng tử là trường hợp xấu nhất
+        for (int q = 0; q < 65535; q++) {
+            float mid = (q + 0.5f) / 65535f;
+            worst = Math.max(worst, Math.abs(SoilColumns.dequantize(SoilColumns.quantize(mid)) - mid));
+        }
+        Random random = new Random(2);
+        for (int i = 0; i < 1_000_000; i++) {
+            float v = random.nextFloat();
+            worst = Math.max(worst, Math.abs(SoilColumns.dequantize(SoilColumns.quantize(v)) - v));
+        }
+        assertTrue(worst <= SoilColumns.QUANT_MAX_ERROR + ROUNDING_SLACK, "worst round-trip error " + worst);
+    }
+
+    @Test
+    void quantizeClampsAndKeepsEndpoints() {
+        assertEquals(0, SoilColumns.quantize(-0.5f));
+        assertEquals(65535, SoilColumns.quantize(1.5f));
+        assertEquals(0f, SoilColumns.dequantize(SoilColumns.quantize(0f)));
+        assertEquals(1f, SoilColumns.dequantize(SoilColumns.quantize(1f)));
+    }
+
+    /**
+     * Bound ghi trong doc SoilColumns sau 5000 lần scheduledUpdate: moisture < 5e-3, thuộc tính khác < 1e-3.
+     * Hai kịch bản: thời tiết / tưới ngẫu nhiên và khô ổn định (delta bay hơi nhỏ, lệch làm tròn một chiều).
+     */
+    @Test
+    void driftAgainstFloatColumnsStaysBounded() {
+        for (long seed = 1; seed <= 32; seed++) {
+            for (boolean steadyDry : new boolean[]{false, true}) {
+                Random random = new Random(seed);
+                SoilData exact = cell(false);
+                SoilData compact = cell(true);
+                float texture = random.nextFloat();
+                float aeration = random.nextFloat();
+                SoilData.FertilizerEffect fertilizer = seed % 2 == 0
+                        ? SoilData.FertilizerEffect.nitrogenMix()
+                        : SoilData.FertilizerEffect.basicCompost();
+                for (SoilData d : new SoilData[]{exact, compact}) {
+                    d.set(SoilAttribute.TEXTURE, texture);
+                    d.set(SoilAttribute.AERATION, aeration);
+                    d.applyFertilizer(fertilizer);
+                }
+                float[] worst = new float[SoilAttribute.values().length];
+                boolean raining = false;
+                for (int step = 0; step < 5000; step++) {
+                    float temperature = 0.5f;
+                    float irrigation = 0f;
+                    if (!steadyDry) {
+                        if (step % 200 == 0) {
+                            raining = random.nextInt(3) == 0;
+                        }
+                        temperature = random.nextFloat();
+                        irrigation = random.nextInt(4) == 0 ? 0.002f : 0f;
+                    }
+                    exact.scheduledUpdate(temperature, raining, irrigation);
+                    compact.scheduledUpdate(temperature, raining, irrigation);
+                    for (SoilAttribute a : SoilAttribute.values()) {
+                        worst[a.ordinal()] = Math.max(worst[a.ordinal()], Math.abs(exact.get(a) - compact.get(a)));
+                    }
+                }
+                for (SoilAttribute a : SoilAttribute.values()) {
+                    float bound = a == SoilAttribute.MOISTURE ? 5e-3f : 1e-3f;
+                    assertTrue(worst[a.ordinal()] < bound,
+                            "seed " + seed + (steadyDry ? " dry" : "") + ": " + a + " drift " + worst[a.ordinal()]);
+                }
+            }
+        }
+    }
+
+    private static SoilData cell(boolean compact) {
+        SoilColumns cols = new SoilColumns(1, compact);
+        cols.reset(0);
+        return new SoilData(cols, 0);
+    }
+}
@@ -0,0 +1,132 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import com.khanhromvn.realisticharvest.config.TestConfig;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SoilKernel.update (theo lô) so với đường từng ô SoilData.scheduledUpdate: cùng kết quả từng bit,
+ * và benchmark thời gian (tag "benchmark", chạy bằng `gradlew benchmark`).
+ */
+class SoilKernelTest {
+
+    private static final int N = SoilSection.SIZE;
+
+    @BeforeAll
+    static void loadConfig() {
+        TestConfig.load();
+    }
+
+    @Test
+    void kernelMatchesPerCellPath() {
+        for (boolean raining : new boolean[]{false, true}) {
+            Fixture kernel = new Fixture(7);
+            Fixture perCell = new Fixture(7);
+            for (int round = 0; round < 200; round++) {
+                kernel.runKernel(raining);
+                perCell.runPerCell(raining);
+            }
+            for (int i = 0; i < N; i++) {
+                for (int a = 0; a < SoilColumns.ATTRIBUTE_COUNT; a++) {
+                    assertEquals(Float.floatToRawIntBits(perCell.cols.get(a, i)),
+                            Float.floatToRawIntBits(kernel.cols.get(a, i)), "cell " + i + " attr " + a);
+                }
+                assertEquals(Float.floatToRawIntBits(perCell.cols.fertilizerIntensity[i]),
+                        Float.floatToRawIntBits(kernel.cols.fertilizerIntensity[i]), "cell " + i);
+            }
+        }
+    }
+
+    @Test
+    void changeFlagsOnlyCellsThatMoved() {
+        Fixture f = new Fixture(3);
+        // Ô khô hẳn, không mưa / tưới, không phân bón => không đổi
+        for (int i = 0; i < N; i++) {
+            f.cols.set(SoilAttribute.MOISTURE, i, 0f);
+            f.cols.fertilizerIntensity[i] = 0f;
+            f.irrigation[i] = 0f;
+        }
+        assertEquals(false, SoilKernel.update(f.cols, N, f.temperature, f.irrigation, f.weight, f.change, 0, false));
+        f.cols.fertilizerIntensity[17] = 0.5f;
+        assertTrue(SoilKernel.update(f.cols, N, f.temperature, f.irrigation, f.weight, f.change, 0, false));
+        assertEquals(1f, f.change[17]);
+        assertEquals(0f, f.change[18]);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void benchmarkKernelAgainstPerCell() {
+        Fixture kernel = new Fixture(11);
+        Fixture perCell = new Fixture(11);
+        int warmup = 2_000;
+        int rounds = 5_000;
+        for (int r = 0; r < warmup; r++) {
+            kernel.runKernel((r & 7) == 0);
+            perCell.runPerCell((r & 7) == 0);
+        }
+        long t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            kernel.runKernel((r & 7) == 0);
+        }
+        long kernelNanos = System.nanoTime() - t0;
+        t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            perCell.runPerCell((r & 7) == 0);
+        }
+        long perCellNanos = System.nanoTime() - t0;
+        double cells = (double) rounds * N;
+        System.out.printf("SoilKernel: %.2f ns/cell batch, %.2f ns/cell per-cell (x%.1f)%n",
+                kernelNanos / cells, perCellNanos / cells, perCellNanos / (double) kernelNanos);
+        // Cùng đầu vào, cùng số vòng => kết quả vẫn phải trùng
+        for (int i = 0; i < N; i++) {
+            assertEquals(Float.floatToRawIntBits(perCell.cols.get(SoilAttribute.MOISTURE, i)),
+                    Float.floatToRawIntBits(kernel.cols.get(SoilAttribute.MOISTURE, i)));
+        }
+    }
+
+    /**
+     * Một dense section đầy ô với đầu vào ngẫu nhiên cố định; 1/8 số ô có phân bón.
+     */
+    private static final class Fixture {
+        final SoilColumns cols = new SoilColumns(N, false);
+        final float[] temperature = new float[N];
+        final float[] irrigation = new float[N];
+        final float[] weight = new float[N];
+        final float[] change = new float[N];
+        private final SoilData cursor = SoilData.cursor();
+
+        Fixture(long seed) {
+            Random random = new Random(seed);
+            for (int i = 0; i < N; i++) {
+                cols.reset(i);
+                cols.set(SoilAttribute.MOISTURE, i, random.nextFloat());
+                cols.set(SoilAttribute.TEXTURE, i, random.nextFloat());
+                cols.set(SoilAttribute.AERATION, i, random.nextFloat());
+                cols.set(SoilAttribute.ORGANIC_MATTER, i, random.nextFloat());
+                if ((i & 7) == 0) {
+                    cols.fertilizerIntensity[i] = random.nextFloat();
+                    cols.fertilizerDecayRate[i] = 0.0005f + random.nextFloat() * 0.002f;
+                }
+                temperature[i] = random.nextFloat();
+                irrigation[i] = random.nextInt(4) == 0 ? 0.002f : 0f;
+                weight[i] = 1f;
+            }
+        }
+
+        void runKernel(boolean raining) {
+            SoilKernel.update(cols, N, temperature, irrigation, weight, change, 0, raining);
+        }
+
+        void runPerCell(boolean raining) {
+            for (int i = 0; i < N; i++) {
+                cursor.bind(cols, i).scheduledUpdate(temperature[i], raining, irrigation[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.khanhromvn.realisticharvest.soil;
+
+import net.minecraft.nbt.CompoundNBT;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SoilNbtCodec: độ chính xác attribute theo mode của column; section hỏng phải bị từ chối bằng
+ * IllegalArgumentException trước khi cấp phát.
+ */
+class SoilNbtCodecTest {
+
+    @Test
+    void negativeCountIsRejected() {
+        CompoundNBT tag = section(-1);
+        assertThrows(IllegalArgumentException.class, () -> new SoilNbtCodec.Reader(tag));
+    }
+
+    @Test
+    void countAboveSectionSizeIsRejected() {
+        CompoundNBT tag = section(SoilSection.SIZE + 1);
+        assertThrows(IllegalArgumentException.class, () -> new SoilNbtCodec.Reader(tag));
+        CompoundNBT huge = section(Integer.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> new SoilNbtCodec.Reader(huge));
+    }
+
+    @Test
+    void indexOutsideSectionIsRejected() {
+        CompoundNBT tag = encode(new int[]{5, SoilSection.SIZE});
+        assertThrows(IllegalArgumentException.class, () -> new SoilNbtCodec.Reader(tag));
+    }
+
+    @Test
+    void mismatchedColumnLengthIsRejected() {
+        CompoundNBT tag = encode(new int[]{1, 2, 3});
+        tag.putIntArray("f", new int[5]);
+        assertThrows(IllegalArgumentException.class, () -> new SoilNbtCodec.Reader(tag));
+    }
+
+    @Test
+    void validSectionIsAccepted() {
+        SoilNbtCodec.Reader reader = new SoilNbtCodec.Reader(encode(new int[]{0, 17, SoilSection.SIZE - 1}));
+        assertEquals(3, reader.size());
+        assertEquals(SoilSection.SIZE - 1, reader.localIndex(2));
+    }
+
+    @Test
+    void floatColumnsRoundTripBitExact() {
+        SoilColumns src = randomColumns(64, false);
+        CompoundNBT tag = write(src);
+        assertTrue(tag.contains("attrf"));
+        assertFalse(tag.contains("attr"));
+        SoilNbtCodec.Reader reader = new SoilNbtCodec.Reader(tag);
+        assertFalse(reader.isCompact());
+        SoilColumns dst = new SoilColumns(64, false);
+        for (int k = 0; k < reader.size(); k++) {
+            reader.readCell(k, dst, k);
+        }
+        for (int i = 0; i < 64; i++) {
+            for (int a = 0; a < SoilColumns.ATTRIBUTE_COUNT; a++) {
+                assertEquals(Float.floatToRawIntBits(src.get(a, i)), Float.floatToRawIntBits(dst.get(a, i)));
+            }
+        }
+    }
+
+    @Test
+    void compactColumnsStoreSixteenBit() {
+        SoilColumns src = randomColumns(64, true);
+        CompoundNBT tag = write(src);
+        assertTrue(tag.contains("attr"));
+        assertFalse(tag.contains("attrf"));
+        SoilNbtCodec.Reader reader = new SoilNbtCodec.Reader(tag);
+        assertTrue(reader.isCompact());
+        SoilColumns dst = new SoilColumns(64, true);
+        for (int k = 0; k < reader.size(); k++) {
+            reader.readCell(k, dst, k);
+        }
+        for (int i = 0; i < 64; i++) {
+            for (int a = 0; a < SoilColumns.ATTRIBUTE_COUNT; a++) {
+                assertEquals(src.packed[a][i], dst.packed[a][i]);
+            }
+        }
+    }
+
+    static SoilColumns randomColumns(int n, boolean compact) {
+        SoilColumns cols = new SoilColumns(n, compact);
+        Random random = new Random(n);
+        for (int i = 0; i < n; i++) {
+            cols.reset(i);
+            for (int a = 0; a < SoilColumns.ATTRIBUTE_COUNT; a++) {
+                cols.set(a, i, random.nextFloat());
+            }
+        }
+        return cols;
+    }
+
+    private static CompoundNBT write(SoilColumns cols) {
+        SoilNbtCodec.Writer writer = new SoilNbtCodec.Writer(2, cols.capacity(), cols.isCompact());
+        for (int i = 0; i < cols.capacity(); i++) {
+            writer.add(cols, i, i * 3);
+        }
+        return writer.toNBT();
+    }
+
+    private static CompoundNBT section(int n) {
+        CompoundNBT tag = new CompoundNBT();
+        tag.putInt("y", 4);
+        tag.putInt("n", n);
+        tag.putIntArray("idx", new int[0]);
+        tag.putIntArray("attr", new int[0]);
+        tag.putIntArray("f", new int[0]);
+        tag.putIntArray("i", new int[0]);
+        return tag;
+    }
+
+    static CompoundNBT encode(int[] localIndices) {
+        SoilColumns cols = new SoilColumns(localIndices.length, false);
+        SoilNbtCodec.Writer writer = new SoilNbtCodec.Writer(4, localIndices.length, false);
+        for (int k = 0; k < localIndices.length; k++) {
+            cols.reset(k);
+            writer.add(cols, k, localIndices[k]);
+        }
+        return writer.toNBT();
+    }
+}